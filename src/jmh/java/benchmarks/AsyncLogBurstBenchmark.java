@@ -0,0 +1,13 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * The {@link LogBurstBenchmark} with the asynchronous loggers of the test task: the test thread
+ * only puts the log events in the ring buffer, the files are written by the background thread.
+ */
+@Fork(value = 1, jvmArgsAppend = {
+    "-Dlog4j2.contextSelector=org.apache.logging.log4j.core.async.AsyncLoggerContextSelector",
+    "-DlogImmediateFlush=false"})
+public class AsyncLogBurstBenchmark extends LogBurstBenchmark {
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.util.Unbox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time spent by a test thread to log a burst of 100 debug lines through the Routing appender of
+ * log4j2.xml, as when a session is set up or a page object is loaded, with the synchronous
+ * loggers. The log files are given time to catch up between the bursts, as between the steps of
+ * a test. {@link AsyncLogBurstBenchmark} is the same burst with the asynchronous loggers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 200, batchSize = 100)
+@Measurement(iterations = 200, batchSize = 100)
+@Fork(1)
+public class LogBurstBenchmark {
+
+  private static final Logger logger = LogManager.getLogger(LogBurstBenchmark.class);
+
+  private static final long PAUSE_MILLIS = 20;
+
+  private int step;
+
+  @Setup(Level.Trial)
+  public void setUpThread() {
+    ThreadContext.put("threadId", "jmh-" + getClass().getSimpleName());
+  }
+
+  @TearDown(Level.Iteration)
+  public void pause() throws InterruptedException {
+    TimeUnit.MILLISECONDS.sleep(PAUSE_MILLIS);
+  }
+
+  @Benchmark
+  public void parameterized() {
+    logger.debug("Sending character '{}' to the text field at position {}", 'x', Unbox.box(step++));
+  }
+}
@@ -0,0 +1,89 @@
+package benchmarks;
+
+import appiumdriver.AppiumDriverFactory;
+import appiumdriver.InstrumentedAndroidDriver;
+import appiumdriver.fake.FakeAppiumServer;
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.MobileElement;
+import io.appium.java_client.pagefactory.AppiumFieldDecorator;
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.support.PageFactory;
+import pageobjects.base.AbstractWidget;
+import pageobjects.base.CompiledSearchContext;
+
+/**
+ * Cost of PageFactory.initElements with the AppiumFieldDecorator, as run by the constructor of
+ * every page object. The driver is connected to the fake Appium server; the decoration only
+ * builds the element proxies and does not send any command.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageFactoryBenchmark {
+
+  @Param({
+      "pageobjects.android.screens.AndroidOnboardingScreen",
+      "pageobjects.android.widgets.AndroidPhoneNumberWidget",
+      "pageobjects.android.widgets.AndroidPermissionsRequestWidget"})
+  public String pageObjectClass;
+
+  private static final String CONTAINER_XPATH = "//*[@resource-id='android:id/content']";
+
+  private InstrumentedAndroidDriver driver;
+  private Object pageObject;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    DesiredCapabilities caps = new DesiredCapabilities();
+    caps.setCapability("deviceName", "benchmark");
+    caps.setCapability("automationName", "UiAutomator2");
+    caps.setCapability("appPackage", AppiumDriverFactory.APP_PACKAGE);
+    // the benchmark device has no app installed by a previous session, so the session installs it
+    caps.setCapability("app", new File(AppiumDriverFactory.LOCAL_ANDROID_APP_NAME).getAbsolutePath());
+    driver = new InstrumentedAndroidDriver(FakeAppiumServer.getInstance().getUrl(), caps);
+    // the public constructors wait for the screen, so the page object is built with its benchmark
+    // constructor, which only sets the driver and the container
+    Class<?> type = Class.forName(pageObjectClass);
+    if (AbstractWidget.class.isAssignableFrom(type)) {
+      Constructor<?> constructor = type.getDeclaredConstructor(MobileElement.class, AppiumDriver.class);
+      constructor.setAccessible(true);
+      pageObject = constructor.newInstance(driver.findElement(By.xpath(CONTAINER_XPATH)), driver);
+    } else {
+      Constructor<?> constructor = type.getDeclaredConstructor(AppiumDriver.class);
+      constructor.setAccessible(true);
+      pageObject = constructor.newInstance(driver);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    driver.quit();
+    FakeAppiumServer.shutdown();
+  }
+
+  @Benchmark
+  public Object initElements() {
+    PageFactory.initElements(new AppiumFieldDecorator(new CompiledSearchContext(driver)), pageObject);
+    return pageObject;
+  }
+}
@@ -0,0 +1,67 @@
+package benchmarks;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.RandomStringGenerator;
+
+/**
+ * Cost of RandomStringGenerator.nextString when one generator is shared by the test threads, as
+ * the name generator of DemoTests, compared with one generator per thread. The shared
+ * SecureRandom is synchronized, so the shared generator shows the contention between the threads.
+ * The shared generator also shares its char buffer, so its strings can mix characters written by
+ * several threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class RandomStringGeneratorBenchmark {
+
+  private static final int LENGTH = 8;
+
+  @State(Scope.Benchmark)
+  public static class SharedGenerator {
+    final RandomStringGenerator generator = new RandomStringGenerator(LENGTH, new SecureRandom(),
+            RandomStringGenerator.LOWERCASE);
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadGenerator {
+    final RandomStringGenerator generator = new RandomStringGenerator(LENGTH, new SecureRandom(),
+            RandomStringGenerator.LOWERCASE);
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadInsecureGenerator {
+    final RandomStringGenerator generator = new RandomStringGenerator(LENGTH, new Random(),
+            RandomStringGenerator.LOWERCASE);
+  }
+
+  @Benchmark
+  public String sharedSecureRandom(SharedGenerator state) {
+    return state.generator.nextString();
+  }
+
+  @Benchmark
+  public String threadSecureRandom(ThreadGenerator state) {
+    return state.generator.nextString();
+  }
+
+  @Benchmark
+  public String threadRandom(ThreadInsecureGenerator state) {
+    return state.generator.nextString();
+  }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a log line going through the Routing appender of log4j2.xml, which writes the lines of
+ * each thread to build/logs/threadId.log, with and without parameterized messages, and of a line
+ * dropped by the level check.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingAppenderBenchmark {
+
+  private static final Logger logger = LogManager.getLogger(RoutingAppenderBenchmark.class);
+
+  private int step;
+
+  @Setup(Level.Trial)
+  public void setUpThread() {
+    ThreadContext.put("threadId", "jmh-" + Thread.currentThread().getName());
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void parameterized() {
+    logger.debug("Sending character '{}' to the text field at position {}", 'x', step++);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void concatenated() {
+    logger.debug("Sending character 'x' to the text field at position " + step++);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void parameterizedParallel() {
+    logger.debug("Sending character '{}' to the text field at position {}", 'x', step++);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void disabledLevel() {
+    logger.trace("Sending character '{}' to the text field at position {}", 'x', step++);
+  }
+}
@@ -0,0 +1,56 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.ThreadContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.TestReporter;
+
+/**
+ * Cost of TestReporter.addInfoToReport: the step number and message building, the Log4j2 debug
+ * line and the entry kept in the test of the thread. The reporter is not initialized, so the
+ * tests ended between the iterations are dropped instead of written to the report event log.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TestReporterBenchmark {
+
+  private static final String MESSAGE = "Setting phone number as: 701111112";
+
+  @Setup(Level.Trial)
+  public void setUpThread() {
+    ThreadContext.put("threadId", "jmh-" + Thread.currentThread().getName());
+  }
+
+  @Setup(Level.Iteration)
+  public void startTest() {
+    TestReporter.createTest("benchmark");
+    TestReporter.resetStepCounter();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void addInfoToReport() {
+    TestReporter.addInfoToReport(MESSAGE);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void addInfoToReportParallel() {
+    TestReporter.addInfoToReport(MESSAGE);
+  }
+}
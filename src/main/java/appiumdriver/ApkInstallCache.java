@@ -0,0 +1,269 @@
+package appiumdriver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import io.appium.java_client.AppiumDriver;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.WebDriverException;
+import utils.TestReporter;
+
+/**
+ * Keeps which build of the app is installed on each device, so that a new session skips the
+ * check and the install of the APK by Appium when the device already has the same build. The
+ * build is the SHA-256 checksum of the APK, computed once per run, and the devices are kept
+ * between runs in the file given by the system property apkInstallCacheFile
+ * (build/apk-installs.json by default).
+ *
+ * <p>A session started without the APK checks that the app is still installed and, when the
+ * adb shell is allowed on the Appium server, that its version, last update time and signatures
+ * did not change since the install. Otherwise the APK is installed again. The cache is turned off
+ * with the system property apkInstallCache=false. The session start times with and without the
+ * install are written to build/reports/apk-install.csv and to the report dashboard at the end of
+ * the suite.
+ */
+public final class ApkInstallCache {
+
+  private static final Logger logger = LogManager.getLogger(ApkInstallCache.class);
+
+  private static final String DEFAULT_CACHE_PATH = "/build/apk-installs.json";
+  private static final String REPORT_PATH = "/build/reports/apk-install.csv";
+  private static final String INSTALL = "install";
+  private static final String REUSE = "reuse";
+  private static final String REINSTALL = "reinstall";
+
+  private static final Pattern PACKAGE_DETAILS = Pattern.compile(
+          "(versionName=\\S+|lastUpdateTime=[^\\n]+|signatures=[^\\n]+)");
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private static final boolean enabled = Boolean.parseBoolean(System.getProperty("apkInstallCache", "true"));
+  private static final File cacheFile = new File(System.getProperty("apkInstallCacheFile",
+          System.getProperty("user.dir") + DEFAULT_CACHE_PATH));
+
+  private static final Map<String, String> checksums = new ConcurrentHashMap<>();
+  private static final Map<String, InstalledApp> installedApps = new ConcurrentHashMap<>();
+  private static final Map<String, SessionTiming> timings = new ConcurrentHashMap<>();
+
+  static {
+    if (enabled) {
+      load();
+    }
+  }
+
+  /**
+   * Private constructor to hide the implicit one.
+   */
+  private ApkInstallCache() {
+  }
+
+  /**
+   * Tells if a new session on a device can skip the install of the APK.
+   *
+   * @param device the device of the session
+   * @param apk the APK of the app
+   * @return true if the same build of the app was installed on the device by a previous session
+   */
+  static boolean isInstalled(Device device, File apk) {
+    if (!enabled || !apk.isFile()) {
+      return false;
+    }
+    InstalledApp installed = installedApps.get(device.getKey());
+    return installed != null && installed.checksum.equals(checksum(apk));
+  }
+
+  /**
+   * Records a session started with the install of the APK.
+   *
+   * @param driver the driver of the session
+   * @param device the device of the session
+   * @param apk the installed APK
+   * @param sessionMillis the time it took to start the session
+   */
+  static void recordInstall(AppiumDriver<?> driver, Device device, File apk, long sessionMillis) {
+    record(INSTALL, sessionMillis);
+    if (enabled && apk.isFile()) {
+      installedApps.put(device.getKey(), new InstalledApp(checksum(apk), readPackageDetails(driver)));
+    }
+  }
+
+  /**
+   * Checks the app of a session started without the install of the APK, and installs the APK
+   * again when the app was removed or replaced on the device since the install.
+   *
+   * @param driver the driver of the session
+   * @param device the device of the session
+   * @param apk the APK of the app
+   * @param sessionMillis the time it took to start the session
+   */
+  static void verifyReuse(AppiumDriver<?> driver, Device device, File apk, long sessionMillis) {
+    final long start = System.nanoTime();
+    InstalledApp installed = installedApps.get(device.getKey());
+    String details = readPackageDetails(driver);
+    if (installed != null && driver.isAppInstalled(AppiumDriverFactory.APP_PACKAGE)
+            && (installed.packageDetails == null || installed.packageDetails.equals(details))) {
+      record(REUSE, sessionMillis + (System.nanoTime() - start) / 1_000_000);
+      logger.info("Reused the app installed on {}, session started in {} ms", device.getName(), sessionMillis);
+      return;
+    }
+
+    logger.warn("The app installed on {} is not the one of {}, installing it again", device.getName(), apk);
+    driver.installApp(apk.getAbsolutePath());
+    driver.activateApp(AppiumDriverFactory.APP_PACKAGE);
+    record(REINSTALL, sessionMillis + (System.nanoTime() - start) / 1_000_000);
+    installedApps.put(device.getKey(), new InstalledApp(checksum(apk), readPackageDetails(driver)));
+  }
+
+  /**
+   * Forgets the app installed on a device, when a session could not be started without the
+   * install of the APK.
+   *
+   * @param device the device
+   */
+  static void invalidate(Device device) {
+    installedApps.remove(device.getKey());
+  }
+
+  /**
+   * Saves the installed apps for the next runs and writes the session start times with and
+   * without the install as a CSV file in the build/reports folder and to the report dashboard.
+   */
+  public static void writeReport() {
+    if (timings.isEmpty()) {
+      return;
+    }
+    if (enabled) {
+      save();
+    }
+    String reportPath = System.getProperty("user.dir") + REPORT_PATH;
+    File reportFile = new File(reportPath);
+    reportFile.getParentFile().mkdirs();
+    try (PrintWriter writer = new PrintWriter(reportFile, StandardCharsets.UTF_8.name())) {
+      writer.println("app,sessions,avg_ms,max_ms");
+      for (Map.Entry<String, SessionTiming> entry : new TreeMap<>(timings).entrySet()) {
+        SessionTiming timing = entry.getValue();
+        long sessions = timing.sessions.sum();
+        long averageMillis = sessions > 0 ? timing.totalMillis.sum() / sessions : 0;
+        writer.println(entry.getKey() + "," + sessions + "," + averageMillis + "," + timing.maxMillis);
+        TestReporter.addSuiteMetric("APK " + entry.getKey() + " sessions", sessions + " sessions, avg "
+                + averageMillis + " ms, max " + timing.maxMillis + " ms");
+      }
+      logger.info("APK install report written to {}", reportPath);
+    } catch (IOException e) {
+      logger.error("Unable to write the APK install report", e);
+    }
+  }
+
+  private static void record(String app, long millis) {
+    timings.computeIfAbsent(app, k -> new SessionTiming()).record(millis);
+  }
+
+  private static String checksum(File apk) {
+    return checksums.computeIfAbsent(apk.getAbsolutePath(), path -> {
+      try {
+        final long start = System.nanoTime();
+        String checksum = Files.asByteSource(apk).hash(Hashing.sha256()).toString();
+        logger.info("Checksum of {}: {} ({} ms)", apk, checksum, (System.nanoTime() - start) / 1_000_000);
+        return checksum;
+      } catch (IOException e) {
+        throw new UncheckedIOException("Unable to read the APK " + apk, e);
+      }
+    });
+  }
+
+  /**
+   * Reads the version, last update time and signatures of the installed app, or null when the
+   * adb shell is not allowed on the Appium server.
+   */
+  private static String readPackageDetails(AppiumDriver<?> driver) {
+    try {
+      Object output = driver.executeScript("mobile: shell", ImmutableMap.of("command", "dumpsys",
+              "args", Arrays.asList("package", AppiumDriverFactory.APP_PACKAGE)));
+      StringBuilder details = new StringBuilder();
+      Matcher matcher = PACKAGE_DETAILS.matcher(String.valueOf(output));
+      while (matcher.find()) {
+        details.append(matcher.group(1).trim()).append(' ');
+      }
+      return details.length() > 0 ? details.toString().trim() : null;
+    } catch (WebDriverException e) {
+      logger.debug("The installed app is only checked to be on the device, without the adb shell: {}",
+              e.getMessage().split("\n", 2)[0]);
+      return null;
+    }
+  }
+
+  private static void load() {
+    if (!cacheFile.exists()) {
+      return;
+    }
+    try {
+      Iterator<Map.Entry<String, JsonNode>> fields = mapper.readTree(cacheFile).fields();
+      while (fields.hasNext()) {
+        Map.Entry<String, JsonNode> field = fields.next();
+        installedApps.put(field.getKey(), new InstalledApp(field.getValue().path("checksum").asText(),
+                field.getValue().path("packageDetails").asText(null)));
+      }
+      logger.debug("Loaded the installed app of {} devices from {}", installedApps.size(), cacheFile);
+    } catch (IOException e) {
+      logger.warn("Unable to read the APK install cache {}", cacheFile, e);
+    }
+  }
+
+  private static void save() {
+    ObjectNode root = mapper.createObjectNode();
+    for (Map.Entry<String, InstalledApp> entry : new TreeMap<>(installedApps).entrySet()) {
+      ObjectNode node = root.putObject(entry.getKey());
+      node.put("checksum", entry.getValue().checksum);
+      if (entry.getValue().packageDetails != null) {
+        node.put("packageDetails", entry.getValue().packageDetails);
+      }
+    }
+    cacheFile.getAbsoluteFile().getParentFile().mkdirs();
+    try {
+      mapper.writerWithDefaultPrettyPrinter().writeValue(cacheFile, root);
+    } catch (IOException e) {
+      logger.warn("Unable to write the APK install cache {}", cacheFile, e);
+    }
+  }
+
+  private static final class InstalledApp {
+    private final String checksum;
+    private final String packageDetails;
+
+    private InstalledApp(String checksum, String packageDetails) {
+      this.checksum = checksum;
+      this.packageDetails = packageDetails;
+    }
+  }
+
+  private static final class SessionTiming {
+    private final LongAdder sessions = new LongAdder();
+    private final LongAdder totalMillis = new LongAdder();
+    private volatile long maxMillis;
+
+    private void record(long millis) {
+      sessions.increment();
+      totalMillis.add(millis);
+      synchronized (this) {
+        maxMillis = Math.max(maxMillis, millis);
+      }
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package appiumdriver;
 
+import appiumdriver.fake.FakeAppiumServer;
 import com.aventstack.extentreports.ExtentReports;
 import com.aventstack.extentreports.ExtentTest;
 import com.aventstack.extentreports.reporter.ExtentSparkReporter;
@@ -18,6 +19,10 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.BeforeSuite;
+import utils.FailureKind;
+import utils.LoadTimeMetrics;
+import utils.LocatorLatencyReport;
+import utils.TestEvents;
 import utils.TestReporter;
 
 public class AppiumDriverBase {
@@ -63,6 +68,7 @@ public class AppiumDriverBase {
 
     ThreadContext.put(THREAD_ID, Thread.currentThread().getName());
     EnvironmentConfig.initializeEnvironment();
+    SessionPrewarmer.start();
 
     // Instantiates and stores the AppiumDriver into the ThreadLocal variable
     appiumDriverThread = ThreadLocal.withInitial(() -> {
@@ -112,14 +118,22 @@ public class AppiumDriverBase {
   }
 
   /**
-   * Quit the browser between tests.
+   * Releases the AppiumDriver between tests. The session goes back to the session pool, or is quit
+   * when the pool is disabled or the test failed because of the session.
    */
   @AfterMethod(alwaysRun = true, dependsOnMethods = { "finishTest" })
   public static void quitAppiumDriver(ITestResult result) {
     try {
       logger.debug("Get the session id of the test before quitting");
-      logger.trace("Quit AppiumDriver");
-      appiumDriverThread.get().quitDriver();
+      if (result.getStatus() != ITestResult.SUCCESS
+              && FailureKind.classify(result.getThrowable()) == FailureKind.SESSION) {
+        // the retry of the test gets a new session instead of this broken one
+        logger.trace("Quit AppiumDriver after a session failure");
+        appiumDriverThread.get().quitDriver();
+      } else {
+        logger.trace("Release AppiumDriver");
+        appiumDriverThread.get().releaseDriver();
+      }
 
       if (result.getStatus() == ITestResult.FAILURE) {
         TestReporter.reportError(result.getThrowable().getMessage());
@@ -128,6 +142,7 @@ public class AppiumDriverBase {
       } else {
         TestReporter.reportInfo("Test skipped");
       }
+      TestReporter.endTest();
     } catch (Exception ex) {
       logger.error("Unable to quit AppiumDriver", ex);
     }
@@ -156,6 +171,13 @@ public class AppiumDriverBase {
     }
     logger.trace("Remove AppiumDriver from ThreadLocal");
     appiumDriverThread.remove();
+    AppiumSessionPool.getInstance().shutdown();
+    SessionPrewarmer.logTimeToFirstSession();
+    ApkInstallCache.writeReport();
+    FakeAppiumServer.shutdown();
+    LocatorLatencyReport.writeReport();
+    LoadTimeMetrics.writeReport();
+    TestEvents.close();
 
     TestReporter.flushReport();
   }
@@ -180,6 +202,16 @@ public class AppiumDriverBase {
     return appiumDriverThread.get().getDevice();
   }
 
+  /**
+   * Gets how the runtime permissions of the app are granted.
+   *
+   * @return permissions mode granted/dialog.
+   */
+  public static PermissionsMode getPermissionsMode() {
+    logger.trace("Get the permissions mode");
+    return appiumDriverThread.get().getPermissionsMode();
+  }
+
   /**
    * Gets the environment.
    *
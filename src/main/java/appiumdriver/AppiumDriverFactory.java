@@ -1,27 +1,45 @@
 package appiumdriver;
 
+import appiumdriver.fake.FakeAppiumServer;
 import com.browserstack.local.Local;
+import com.google.common.collect.ImmutableMap;
 import io.appium.java_client.AppiumDriver;
-import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.MobileElement;
 
 import java.io.File;
-import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.regex.Pattern;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.remote.DesiredCapabilities;
+import utils.TestEvents;
 
 public class AppiumDriverFactory {
 
+  public static final String APP_PACKAGE = "com.hdw.james.rider";
+  public static final String LOCAL_ANDROID_APP_NAME = "James_Rider_1.22.0.apk";
+
+  /**
+   * Errors of a session started without the APK when the app is not on the device anymore.
+   */
+  private static final Pattern APP_NOT_INSTALLED = Pattern.compile(
+          "(?i)(is not installed|app not found|could not find package|activity class \\S+ does not exist"
+          + "|activity used to start app doesn't exist)");
+
   private AppiumDriver appiumDriver;
+  private PooledSession pooledSession;
+  private Device device;
   protected static final Logger logger = LogManager.getLogger(appiumdriver.AppiumDriverFactory.class);
   private final String javaVersion = System.getProperty("java.version");
   private final String platform = System.getProperty("platform");
-  private final String osVersion = System.getProperty("osVersion");
-  private final String device = System.getProperty("device").replace("-", " ");
   private final String appUrl = System.getProperty("appUrl");
   private final String driverMode = System.getProperty("driverMode");
   private final String environment = System.getProperty("environment");
+  private final boolean sessionPoolEnabled = Boolean.parseBoolean(System.getProperty("sessionPool", "true"));
+  private final PermissionsMode permissionsMode = PermissionsMode.getEnum(
+          System.getProperty("permissions", PermissionsMode.GRANTED.toString()).toLowerCase());
   private AppiumMode appiumMode;
   private MobilePlatform mobilePlatform;
   private URL appiumServerUrl;
@@ -34,31 +52,113 @@ public class AppiumDriverFactory {
     appiumServerUrl = null;
   }
 
+  /**
+   * Creates a factory for the sessions of a given device, used to pre-warm the sessions.
+   *
+   * @param device the device of the sessions
+   */
+  AppiumDriverFactory(Device device) {
+    this();
+    this.device = device;
+  }
+
   public void resetDriver() {
-    appiumDriver = null;
+    releaseDriver();
   }
 
   public AppiumDriver getDriver() {
     if (null == appiumDriver) {
       logger.trace("Starting AppiumDriver");
-      instantiateAppiumDriver();
+      if (null == device) {
+        device = DeviceRegistry.getInstance().lease();
+      }
+      if (sessionPoolEnabled) {
+        // the health check and the reset of the reused sessions are not part of the test commands
+        pooledSession = CommandRecorder.withoutRecording(() ->
+                AppiumSessionPool.getInstance().lease(device.getKey(), this::instantiateAppiumDriver));
+        appiumDriver = pooledSession.getDriver();
+        if (permissionsMode == PermissionsMode.GRANTED && pooledSession.getLeaseCount() > 1) {
+          // clearing the app data of a reused session also revokes its runtime permissions
+          CommandRecorder.withoutRecording(() -> grantPermissions(appiumDriver));
+        }
+      } else {
+        appiumDriver = instantiateAppiumDriver();
+      }
+      SessionPrewarmer.recordFirstSession(pooledSession);
+      TestEvents.sessionLeased(String.valueOf(appiumDriver.getSessionId()), device.getName(),
+              pooledSession != null && pooledSession.getLeaseCount() > 1);
     }
     return appiumDriver;
   }
 
+  /**
+   * Gives the AppiumDriver back to the session pool so the next test can reuse the session, and
+   * the device back to the device registry. When the session pool is disabled the AppiumDriver is
+   * quit.
+   */
+  public void releaseDriver() {
+    if (null == pooledSession) {
+      quitDriver();
+      return;
+    }
+    logger.trace("Releasing AppiumDriver to the session pool");
+    AppiumSessionPool.getInstance().release(pooledSession);
+    pooledSession = null;
+    appiumDriver = null;
+    releaseDevice();
+  }
+
   public void quitDriver() {
     logger.trace("Closing AppiumDriver");
-    if (null != appiumDriver) {
+    if (null != pooledSession) {
+      AppiumSessionPool.getInstance().invalidate(pooledSession);
+      pooledSession = null;
+      appiumDriver = null;
+      logger.debug("Pooled AppiumDriver is quit");
+    } else if (null != appiumDriver) {
       appiumDriver.quit();
       appiumDriver = null;
       logger.debug("AppiumDriver is quit");
     }
+    releaseDevice();
   }
 
-  private void instantiateAppiumDriver() {
+  /**
+   * Gets how the runtime permissions of the app are granted, set by the system property
+   * permissions (granted/dialog).
+   *
+   * @return the permissions mode
+   */
+  public PermissionsMode getPermissionsMode() {
+    return permissionsMode;
+  }
+
+  /**
+   * Grants all the runtime permissions requested by the app, as the autoGrantPermissions
+   * capability does when the session is created. The tests fall back to the permission dialogs
+   * when the permissions cannot be granted.
+   */
+  private static Object grantPermissions(AppiumDriver<?> driver) {
+    logger.debug("Granting the runtime permissions of {}", APP_PACKAGE);
+    try {
+      return driver.executeScript("mobile: changePermissions", ImmutableMap.of("permissions", "all",
+              "appPackage", APP_PACKAGE, "action", "grant"));
+    } catch (WebDriverException e) {
+      logger.warn("Unable to grant the runtime permissions of {}", APP_PACKAGE, e);
+      return null;
+    }
+  }
+
+  private void releaseDevice() {
+    if (null != device) {
+      DeviceRegistry.getInstance().release(device);
+      device = null;
+    }
+  }
+
+  AppiumDriver<MobileElement> instantiateAppiumDriver() {
     logger.info("Java Version: {}", javaVersion);
     logger.info("Platform: {}", platform);
-    logger.info("OS Version: {}", osVersion);
     logger.info("Device: {}", device);
     logger.info("App Url: {}", appUrl);
     logger.info("Driver Mode: {}", driverMode);
@@ -66,7 +166,7 @@ public class AppiumDriverFactory {
     setCapabilities();
     setAppiumMode();
     setAppiumServerUrl();
-    startAppiumDriver();
+    return startAppiumDriver();
   }
 
   private void setAppiumMode() {
@@ -80,66 +180,106 @@ public class AppiumDriverFactory {
   }
 
   private void setCapabilities() {
-    logger.debug("Set capabilities");
     String build = "Local Test";
     caps.setCapability("build", build);
-    logger.debug("Capabilities [build]: {}", build);
     String name = "XXXX";
     caps.setCapability("name", name);
-    logger.debug("Capabilities [name]: {}", name);
 
-    caps.setCapability("deviceName", device);
-    logger.debug("Capabilities [device]: {}", device);
-    caps.setCapability("os_version", osVersion);
-    logger.debug("Capabilities [os_version]: {}", osVersion);
+    caps.setCapability("deviceName", device.getName());
+    if (null != device.getUdid()) {
+      caps.setCapability("udid", device.getUdid());
+    }
+    caps.setCapability("systemPort", device.getSystemPort());
+    caps.setCapability("os_version", device.getOsVersion());
     caps.setCapability("app", appUrl);
-    logger.debug("Capabilities [app]: {}", appUrl);
     caps.setCapability("browserstack.debug", "true");
-    logger.debug("Capabilities [browserstack.debug]: {}", "true");
     caps.setCapability("browserstack.networkLogs", "true");
-    logger.debug("Capabilities [networkLogs]: {}", "true");
     caps.setCapability("disableAnimations", "true");
-    logger.debug("Capabilities [disableAnimations]: {}", "true");
     setMobilePlatform();
     String project = "App";
     caps.setCapability("project", project);
-    logger.debug("Capabilities [project]: {}", project);
     caps.setCapability("automationName", "UiAutomator2");
-    logger.debug("Capabilities [automationName]: {}", "UiAutomator2");
-    caps.setCapability("appPackage", "com.hdw.james.rider");
-    logger.debug("Capabilities [appPackage]: com.hdw.james.rider");
+    caps.setCapability("appPackage", APP_PACKAGE);
     caps.setCapability("appActivity", "com.hdw.james.rider.viewlayer.launcher.LauncherActivity");
-    logger.debug("Capabilities [appActivity]: com.hdw.james.rider.viewlayer.launcher.LauncherActivity");
     caps.setCapability("language", "en");
-    logger.debug("Capabilities [language]: {}", "en");
     caps.setCapability("locale", "FR");
-    logger.debug("Capabilities [locale]: {}", "FR");
     caps.setCapability("skipDeviceInitialization", true);
-    logger.debug("Skip device initialization {}", "true");
     caps.setCapability("adbExecTimeout", 50000);
-    logger.debug("Set Adb exec timeout in millisecs {}", "50000");
+    boolean autoGrantPermissions = permissionsMode == PermissionsMode.GRANTED;
+    caps.setCapability("autoGrantPermissions", autoGrantPermissions);
+    // one line for all the capabilities, instead of one line per capability
+    logger.debug("Capabilities: {}", caps);
   }
 
   /**
    * Starts the Appium driver with the specified capabilities for Android.
    */
-  private void startAppiumDriver() {
+  private AppiumDriver<MobileElement> startAppiumDriver() {
     logger.debug("Starting Appium driver for Android");
     setMobilePlatform();
     if (mobilePlatform == MobilePlatform.ANDROID) {
-      setAndroidLocalApp();
-      appiumDriver = new AndroidDriver<>(appiumServerUrl, caps);
+      File app = new File(LOCAL_ANDROID_APP_NAME);
+      boolean installed = ApkInstallCache.isInstalled(device, app);
+      setAndroidLocalApp(app, installed);
+      long start = System.nanoTime();
+      AppiumDriver<MobileElement> androidDriver;
+      try {
+        androidDriver = new InstrumentedAndroidDriver(appiumServerUrl, caps);
+      } catch (SessionNotCreatedException e) {
+        if (!installed || !isAppNotInstalled(e)) {
+          throw e;
+        }
+        logger.warn("Unable to start a session without installing the app on {}, installing it: {}",
+                device.getName(), e.getMessage().split("\n", 2)[0]);
+        ApkInstallCache.invalidate(device);
+        installed = false;
+        setAndroidLocalApp(app, false);
+        start = System.nanoTime();
+        androidDriver = new InstrumentedAndroidDriver(appiumServerUrl, caps);
+      }
+      long sessionMillis = (System.nanoTime() - start) / 1_000_000;
+      // the check of the installed app is part of the session start, not of the test commands
+      boolean reused = installed;
+      AppiumDriver<MobileElement> startedDriver = androidDriver;
+      CommandRecorder.withoutRecording(() -> {
+        if (reused) {
+          ApkInstallCache.verifyReuse(startedDriver, device, app, sessionMillis);
+        } else {
+          ApkInstallCache.recordInstall(startedDriver, device, app, sessionMillis);
+        }
+        return null;
+      });
       logger.debug("Started Android Appium driver");
+      return androidDriver;
     } else {
       throw new IllegalArgumentException("The platform [" + mobilePlatform + "] is unknown. Use android.");
     }
   }
 
-  private void setAndroidLocalApp() {
-    String localAndroidAppName = "James_Rider_1.22.0.apk";
-    logger.info("Set local Android app: {}", localAndroidAppName);
-    File app = new File(localAndroidAppName);
-    caps.setCapability("app", app.getAbsolutePath());
+  /**
+   * Tells if a session could not be created because the app is not installed on the device.
+   */
+  private static boolean isAppNotInstalled(Throwable error) {
+    for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+      if (cause.getMessage() != null && APP_NOT_INSTALLED.matcher(cause.getMessage()).find()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Sets the local APK as the app of the session, or no app when the same APK is already installed
+   * on the device, so Appium starts the installed app without checking or installing the APK.
+   */
+  private void setAndroidLocalApp(File app, boolean installed) {
+    if (installed) {
+      logger.info("Local Android app {} already installed on {}", app.getName(), device.getName());
+      caps.setCapability("app", (Object) null);
+    } else {
+      logger.info("Set local Android app: {}", app.getName());
+      caps.setCapability("app", app.getAbsolutePath());
+    }
   }
 
   public MobilePlatform getMobilePlatform() {
@@ -149,7 +289,7 @@ public class AppiumDriverFactory {
 
   public String getDevice() {
     logger.trace("Getting mobile device");
-    return device;
+    return null != device ? device.getName() : System.getProperty("device");
   }
 
   public String getEnvironment() {
@@ -160,20 +300,13 @@ public class AppiumDriverFactory {
   private void setAppiumServerUrl() {
     logger.debug("Set appium server URL");
     if (appiumMode == AppiumMode.LOCAL) {
-      logger.debug("Local Appium Server URL");
-      appiumServerUrl = getAppiumUrlLocal();
+      logger.debug("Local Appium Server URL of device {}", device.getName());
+      appiumServerUrl = device.getAppiumUrl();
+    } else if (appiumMode == AppiumMode.FAKE) {
+      appiumServerUrl = FakeAppiumServer.getInstance().getUrl();
+      logger.debug("Fake Appium Server URL {}", appiumServerUrl);
     } else {
       logger.info("Appium mode not known, default to browserstack");
     }
   }
-
-  private static URL getAppiumUrlLocal() {
-    URL localAppiumServerUrl = null;
-    try {
-      localAppiumServerUrl = new URL("http://127.0.0.1:4723/wd/hub");
-    } catch (MalformedURLException e) {
-      logger.error(e);
-    }
-    return localAppiumServerUrl;
-  }
 }
@@ -4,7 +4,8 @@ package appiumdriver;
  * Enum to represent the mode of Appium execution.
  */
 public enum AppiumMode {
-  LOCAL("local");
+  LOCAL("local"),
+  FAKE("fake");
 
   private final String value;
 
@@ -15,7 +16,7 @@ public enum AppiumMode {
   /**
    * Gets the enum using the mode value.
    *
-   * @param value value of the selected mode: local
+   * @param value value of the selected mode: local or fake
    * @return the selected mode
    */
   public static AppiumMode getEnum(String value) {
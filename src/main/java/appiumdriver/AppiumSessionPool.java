@@ -0,0 +1,268 @@
+package appiumdriver;
+
+import com.google.common.collect.ImmutableMap;
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.MobileElement;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps the Appium sessions alive between tests so each test does not pay for a full UiAutomator2
+ * session creation. The sessions are partitioned by a key (the device) and handed out one at a
+ * time. Before a session is handed out again its health is checked and the app state is reset; an
+ * unhealthy session is quit and replaced by a new one. Sessions can also be pre-warmed: created in
+ * the background before any test asks for them.
+ */
+public final class AppiumSessionPool {
+
+  private static final Logger logger = LogManager.getLogger(AppiumSessionPool.class);
+
+  private static final int DEFAULT_MAX_REUSE = 50;
+
+  private static AppiumSessionPool instance;
+
+  private final Map<String, Deque<PooledSession>> idleSessions = new ConcurrentHashMap<>();
+  private final Map<String, Deque<CompletableFuture<PooledSession>>> warmingSessions = new ConcurrentHashMap<>();
+  private final Set<PooledSession> leasedSessions = ConcurrentHashMap.newKeySet();
+  private final SessionPoolMetrics metrics = new SessionPoolMetrics();
+  private final String appPackage;
+  private final SessionResetStrategy resetStrategy;
+  private final int maxReuse;
+
+  /**
+   * Creates a session pool.
+   *
+   * @param appPackage the package of the app under test
+   * @param resetStrategy how the app state is reset when a session is reused
+   * @param maxReuse number of leases after which a session is recreated
+   */
+  public AppiumSessionPool(String appPackage, SessionResetStrategy resetStrategy, int maxReuse) {
+    if (maxReuse < 1) {
+      throw new IllegalArgumentException("The max session reuse must be at least 1");
+    }
+    this.appPackage = appPackage;
+    this.resetStrategy = resetStrategy;
+    this.maxReuse = maxReuse;
+  }
+
+  /**
+   * Gets the pool shared by all the AppiumDriverFactory objects, configured with the system
+   * properties sessionReset (clear/terminate) and maxSessionReuse.
+   *
+   * @return the shared session pool
+   */
+  public static synchronized AppiumSessionPool getInstance() {
+    if (instance == null) {
+      SessionResetStrategy strategy = SessionResetStrategy.getEnum(
+              System.getProperty("sessionReset", SessionResetStrategy.CLEAR_DATA.toString()).toLowerCase());
+      int maxReuse = Integer.parseInt(System.getProperty("maxSessionReuse",
+              Integer.toString(DEFAULT_MAX_REUSE)));
+      logger.info("Session pool reset strategy: {}, max reuse: {}", strategy, maxReuse);
+      instance = new AppiumSessionPool(AppiumDriverFactory.APP_PACKAGE, strategy, maxReuse);
+    }
+    return instance;
+  }
+
+  /**
+   * Hands out a healthy session for the given key, reusing an idle one when possible.
+   *
+   * @param key the pool partition, usually the device
+   * @param sessionFactory creates a new session when there is no reusable one
+   * @return the leased session
+   */
+  public PooledSession lease(String key, Supplier<AppiumDriver<MobileElement>> sessionFactory) {
+    final long start = System.nanoTime();
+    Deque<PooledSession> idle = idleSessions.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>());
+
+    PooledSession session;
+    while ((session = idle.pollFirst()) != null) {
+      if (session.getLeaseCount() < maxReuse && isHealthy(session) && resetAppState(session)) {
+        break;
+      }
+      discard(session);
+    }
+
+    boolean reused = session != null;
+    if (!reused) {
+      session = takeWarmedSession(key);
+    }
+    if (session == null) {
+      session = createSession(key, sessionFactory, false);
+    }
+    session.markLeased();
+    leasedSessions.add(session);
+    metrics.recordLease(millisSince(start), reused);
+    logger.debug("Leased session {} for [{}], lease number {}", session.getDriver().getSessionId(),
+            key, session.getLeaseCount());
+    return session;
+  }
+
+  /**
+   * Starts creating a session in the background, handed out by the next lease of the key that
+   * finds no idle session. That lease waits for the creation to end when it is still running. A
+   * failed creation is logged right away and the lease then creates its own session.
+   *
+   * @param key the pool partition, usually the device
+   * @param sessionFactory creates the session
+   * @param executor runs the creation
+   * @return the session being created
+   */
+  public CompletableFuture<PooledSession> prewarm(String key, Supplier<AppiumDriver<MobileElement>> sessionFactory,
+          Executor executor) {
+    CompletableFuture<PooledSession> warming = CompletableFuture.supplyAsync(
+            () -> createSession(key, sessionFactory, true), executor);
+    warming.whenComplete((session, e) -> {
+      if (e != null) {
+        logger.error("Unable to pre-warm a session for [{}]", key, e instanceof CompletionException ? e.getCause() : e);
+      }
+    });
+    warmingSessions.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>()).offerLast(warming);
+    return warming;
+  }
+
+  /**
+   * Returns a leased session to the pool so the next test can reuse it.
+   *
+   * @param session the session to return
+   */
+  public void release(PooledSession session) {
+    if (!leasedSessions.remove(session)) {
+      logger.warn("Released a session that was not leased from the pool");
+      return;
+    }
+    metrics.recordRelease(millisSince(session.getLeasedAtNanos()));
+    idleSessions.computeIfAbsent(session.getKey(), k -> new ConcurrentLinkedDeque<>()).offerFirst(session);
+    logger.debug("Released session {} for [{}]", session.getDriver().getSessionId(), session.getKey());
+  }
+
+  /**
+   * Quits a leased session and removes it from the pool.
+   *
+   * @param session the session to quit
+   */
+  public void invalidate(PooledSession session) {
+    if (leasedSessions.remove(session)) {
+      metrics.recordRelease(millisSince(session.getLeasedAtNanos()));
+    }
+    discard(session);
+  }
+
+  /**
+   * Quits all the sessions of the pool and logs the pool metrics.
+   */
+  public void shutdown() {
+    for (Deque<PooledSession> idle : idleSessions.values()) {
+      PooledSession session;
+      while ((session = idle.pollFirst()) != null) {
+        quit(session);
+      }
+    }
+    for (PooledSession session : leasedSessions) {
+      quit(session);
+    }
+    for (Deque<CompletableFuture<PooledSession>> warming : warmingSessions.values()) {
+      CompletableFuture<PooledSession> future;
+      while ((future = warming.pollFirst()) != null) {
+        // a session still being created is quit once it is created
+        future.thenAccept(AppiumSessionPool::quit);
+      }
+    }
+    leasedSessions.clear();
+    logger.info("Session pool metrics: {}", metrics);
+  }
+
+  /**
+   * Gets the metrics of the pool.
+   *
+   * @return the pool metrics
+   */
+  public SessionPoolMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Takes the oldest pre-warmed session of the key that was created, waiting for its creation to
+   * end.
+   */
+  private PooledSession takeWarmedSession(String key) {
+    Deque<CompletableFuture<PooledSession>> warming = warmingSessions.get(key);
+    CompletableFuture<PooledSession> future;
+    while (warming != null && (future = warming.pollFirst()) != null) {
+      try {
+        return future.join();
+      } catch (CompletionException | CancellationException e) {
+        // logged when the creation failed
+        logger.debug("Skipping a pre-warmed session of [{}] that was not created", key);
+      }
+    }
+    return null;
+  }
+
+  private PooledSession createSession(String key, Supplier<AppiumDriver<MobileElement>> sessionFactory,
+          boolean prewarmed) {
+    logger.debug("Creating a new session for [{}]", key);
+    final long start = System.nanoTime();
+    AppiumDriver<MobileElement> driver = sessionFactory.get();
+    long creationMillis = millisSince(start);
+    metrics.recordCreation(creationMillis);
+    logger.info("Session {} created for [{}] in {} ms", driver.getSessionId(), key, creationMillis);
+    return new PooledSession(key, driver, creationMillis, prewarmed);
+  }
+
+  private boolean isHealthy(PooledSession session) {
+    try {
+      if (session.getDriver().getSessionId() == null) {
+        return false;
+      }
+      session.getDriver().getContext();
+      return true;
+    } catch (Exception e) {
+      logger.warn("Session for [{}] is not healthy", session.getKey(), e);
+      return false;
+    }
+  }
+
+  private boolean resetAppState(PooledSession session) {
+    AppiumDriver<MobileElement> driver = session.getDriver();
+    try {
+      if (resetStrategy == SessionResetStrategy.CLEAR_DATA) {
+        driver.executeScript("mobile: clearApp", ImmutableMap.of("appId", appPackage));
+      } else {
+        driver.terminateApp(appPackage);
+      }
+      driver.activateApp(appPackage);
+      return true;
+    } catch (Exception e) {
+      logger.warn("Unable to reset the app state with strategy [{}]", resetStrategy, e);
+      return false;
+    }
+  }
+
+  private void discard(PooledSession session) {
+    metrics.recordRecycle();
+    quit(session);
+  }
+
+  private static void quit(PooledSession session) {
+    try {
+      session.getDriver().quit();
+    } catch (Exception e) {
+      logger.debug("Unable to quit session for [{}]", session.getKey(), e);
+    }
+  }
+
+  private static long millisSince(long startNanos) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+}
@@ -0,0 +1,39 @@
+package appiumdriver;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maximum number of WebDriver commands and of remote time a test may use. The commands of the
+ * test are counted by the {@link CommandRecorder}, and a passed test that goes over its budget
+ * against the fake Appium server is marked as failed, so a page object change that adds round
+ * trips does not go unnoticed. On a device the exceeded budgets are only logged.
+ *
+ * <p>The commands sent to create, reset and quit the pooled sessions are not counted, and each
+ * wait counts as one command whatever the number of polls it took.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CommandBudget {
+
+  /**
+   * Value of a limit that is not checked.
+   */
+  long UNLIMITED = -1;
+
+  /**
+   * Gets the maximum number of commands the test may send.
+   *
+   * @return the maximum number of commands
+   */
+  long maxCommands() default UNLIMITED;
+
+  /**
+   * Gets the maximum time the test may spend waiting for the Appium server.
+   *
+   * @return the maximum remote time in milliseconds
+   */
+  long maxRemoteMillis() default UNLIMITED;
+}
@@ -0,0 +1,69 @@
+package appiumdriver;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ITestResult;
+
+/**
+ * Records the commands sent by each test method with a {@link CommandRecorder}. The commands of
+ * each invocation of a test, retries and data provider rows included, are written to their own file
+ * in the build/commands folder, unless the system property recordCommands is false. When running
+ * against the fake Appium server, a passed test that went over its {@link CommandBudget} is marked
+ * as failed; on a device the budget is only logged, as the time and the commands of a test also
+ * depend on the device.
+ */
+public class CommandBudgetListener implements IInvokedMethodListener {
+
+  private static final Logger logger = LogManager.getLogger(CommandBudgetListener.class);
+
+  private final boolean recordCommands = Boolean.parseBoolean(System.getProperty("recordCommands", "true"));
+
+  private final boolean enforceBudgets = AppiumMode.FAKE.toString().equals(System.getProperty("driverMode"));
+
+  private final Map<String, AtomicInteger> invocations = new ConcurrentHashMap<>();
+
+  @Override
+  public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
+    if (method.isTestMethod()) {
+      String testName = testResult.getTestClass().getRealClass().getSimpleName() + "."
+              + method.getTestMethod().getMethodName();
+      CommandRecorder.start(testName,
+              invocations.computeIfAbsent(testName, name -> new AtomicInteger()).incrementAndGet());
+    }
+  }
+
+  @Override
+  public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
+    if (!method.isTestMethod()) {
+      return;
+    }
+    CommandRecorder recorder = CommandRecorder.stop();
+    if (null == recorder) {
+      return;
+    }
+    logger.info("The test sent {} commands, {} counting one per wait, in {} ms of remote time",
+            recorder.getCommandCount(), recorder.getBudgetedCommandCount(), recorder.getRemoteMillis());
+    if (recordCommands) {
+      recorder.write();
+    }
+
+    CommandBudget budget = method.getTestMethod().getConstructorOrMethod().getMethod()
+            .getAnnotation(CommandBudget.class);
+    String exceeded = null != budget ? recorder.checkBudget(budget) : null;
+    if (null == exceeded) {
+      return;
+    }
+    if (!enforceBudgets) {
+      logger.warn(exceeded);
+    } else if (testResult.getStatus() == ITestResult.SUCCESS) {
+      logger.error(exceeded);
+      testResult.setStatus(ITestResult.FAILURE);
+      testResult.setThrowable(new AssertionError(exceeded));
+    }
+  }
+}
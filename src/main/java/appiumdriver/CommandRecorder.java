@@ -0,0 +1,268 @@
+package appiumdriver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.RemoteWebElement;
+
+/**
+ * Records the WebDriver commands sent by the test running in the current thread, with the time
+ * each one took. The commands are written to a per-test file that can be replayed with the
+ * {@link CommandReplayer}, and the totals are checked against the {@link CommandBudget} of the
+ * test.
+ */
+public final class CommandRecorder {
+
+  private static final Logger logger = LogManager.getLogger(CommandRecorder.class);
+
+  static final String DEFAULT_FOLDER = "/build/commands";
+
+  /**
+   * Key of the element references, as written by the W3C protocol.
+   */
+  static final String ELEMENT_KEY = "element-6066-11e4-a52e-4f735466cecf";
+
+  static final String STATUS_OK = "ok";
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+  private static final JsonNodeFactory nodeFactory = mapper.getNodeFactory();
+
+  private static final ThreadLocal<CommandRecorder> currentRecorder = new ThreadLocal<>();
+
+  private final String testName;
+  private final int invocation;
+  private final List<ObjectNode> commands = new ArrayList<>();
+  private long remoteNanos;
+  private boolean paused;
+  private int waitDepth;
+  private int waits;
+  private int commandsOutsideWaits;
+
+  private CommandRecorder(String testName, int invocation) {
+    this.testName = testName;
+    this.invocation = invocation;
+  }
+
+  /**
+   * Starts recording the commands sent from the current thread, replacing the previous recorder.
+   *
+   * @param testName the name of the test, used as the name of the command log
+   * @param invocation the invocation number of the test, counting the retries and the data
+   *                   provider rows, so each invocation gets its own command log
+   * @return the new recorder
+   */
+  public static CommandRecorder start(String testName, int invocation) {
+    CommandRecorder recorder = new CommandRecorder(testName, invocation);
+    currentRecorder.set(recorder);
+    return recorder;
+  }
+
+  /**
+   * Stops recording the commands sent from the current thread.
+   *
+   * @return the recorder of the current thread, or null if there is none
+   */
+  public static CommandRecorder stop() {
+    CommandRecorder recorder = currentRecorder.get();
+    currentRecorder.remove();
+    return recorder;
+  }
+
+  /**
+   * Runs an action without recording the commands it sends, for the commands that belong to the
+   * session pool and not to the test.
+   *
+   * @param action the action to run
+   * @param <T> the type of the result of the action
+   * @return the result of the action
+   */
+  public static <T> T withoutRecording(Supplier<T> action) {
+    CommandRecorder recorder = currentRecorder.get();
+    if (recorder == null || recorder.paused) {
+      return action.get();
+    }
+    recorder.paused = true;
+    try {
+      return action.get();
+    } finally {
+      recorder.paused = false;
+    }
+  }
+
+  /**
+   * Marks the start of a wait of the current thread. The commands sent until the matching
+   * {@link #endWait()} are still recorded, but the whole wait counts as one command in the budget,
+   * as the number of polls depends on the latency of the device and of the app.
+   */
+  public static void startWait() {
+    CommandRecorder recorder = currentRecorder.get();
+    if (recorder != null && recorder.waitDepth++ == 0) {
+      recorder.waits++;
+    }
+  }
+
+  /**
+   * Marks the end of a wait started with {@link #startWait()}.
+   */
+  public static void endWait() {
+    CommandRecorder recorder = currentRecorder.get();
+    if (recorder != null && recorder.waitDepth > 0) {
+      recorder.waitDepth--;
+    }
+  }
+
+  /**
+   * Records a command sent from the current thread, if a recorder was started.
+   *
+   * @param command the name of the command
+   * @param parameters the parameters of the command
+   * @param value the value of the response, null if the command failed
+   * @param error the exception thrown by the command, null if it succeeded
+   * @param nanos the time the command took in nanoseconds
+   */
+  static void record(String command, Map<String, ?> parameters, Object value, Throwable error,
+          long nanos) {
+    CommandRecorder recorder = currentRecorder.get();
+    if (recorder == null || recorder.paused || DriverCommand.NEW_SESSION.equals(command)
+            || DriverCommand.QUIT.equals(command)) {
+      return;
+    }
+    ObjectNode entry = nodeFactory.objectNode();
+    entry.put("command", command);
+    entry.set("parameters", toJson(parameters));
+    entry.put("millis", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    entry.put("status", error == null ? STATUS_OK : error.getClass().getSimpleName());
+    if (value instanceof RemoteWebElement || value instanceof Collection) {
+      entry.set("value", toJson(value));
+    }
+    recorder.commands.add(entry);
+    recorder.remoteNanos += nanos;
+    if (recorder.waitDepth == 0) {
+      recorder.commandsOutsideWaits++;
+    }
+  }
+
+  /**
+   * Gets the name of the recorded test.
+   *
+   * @return the test name
+   */
+  public String getTestName() {
+    return testName;
+  }
+
+  /**
+   * Gets the number of recorded commands.
+   *
+   * @return the number of commands
+   */
+  public int getCommandCount() {
+    return commands.size();
+  }
+
+  /**
+   * Gets the number of commands checked against the budget: the commands sent outside the waits,
+   * plus one per wait.
+   *
+   * @return the number of budgeted commands
+   */
+  public int getBudgetedCommandCount() {
+    return commandsOutsideWaits + waits;
+  }
+
+  /**
+   * Gets the time spent waiting for the Appium server by the recorded commands.
+   *
+   * @return the remote time in milliseconds
+   */
+  public long getRemoteMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(remoteNanos);
+  }
+
+  /**
+   * Checks the recorded commands against a budget.
+   *
+   * @param budget the budget of the test
+   * @return the description of the exceeded limits, or null if the budget is respected
+   */
+  public String checkBudget(CommandBudget budget) {
+    StringBuilder exceeded = new StringBuilder();
+    if (budget.maxCommands() != CommandBudget.UNLIMITED && getBudgetedCommandCount() > budget.maxCommands()) {
+      exceeded.append("sent ").append(getBudgetedCommandCount())
+              .append(" commands, counting one per wait, the budget is ").append(budget.maxCommands());
+    }
+    if (budget.maxRemoteMillis() != CommandBudget.UNLIMITED && getRemoteMillis() > budget.maxRemoteMillis()) {
+      exceeded.append(exceeded.length() > 0 ? "; " : "").append("spent ").append(getRemoteMillis())
+              .append(" ms waiting for the Appium server, the budget is ").append(budget.maxRemoteMillis())
+              .append(" ms");
+    }
+    return exceeded.length() > 0 ? "The test " + testName + " " + exceeded : null;
+  }
+
+  /**
+   * Writes the recorded commands to the build/commands folder, one JSON line per command. The file
+   * is named after the test and its invocation number.
+   *
+   * @return the written file, or null if it could not be written
+   */
+  public File write() {
+    File file = new File(System.getProperty("user.dir") + DEFAULT_FOLDER,
+            testName.replaceAll("[^\\w.-]", "_") + "-" + invocation + ".jsonl");
+    file.getParentFile().mkdirs();
+    try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+      for (ObjectNode command : commands) {
+        writer.write(mapper.writeValueAsString(command));
+        writer.write('\n');
+      }
+    } catch (IOException e) {
+      logger.error("Unable to write the command log of {}", testName, e);
+      return null;
+    }
+    return file;
+  }
+
+  /**
+   * Converts the parameters and the values of the commands to JSON. The elements are written as
+   * W3C element references so they can be matched with the elements of the replayed session.
+   */
+  private static JsonNode toJson(Object value) {
+    if (value == null) {
+      return nodeFactory.nullNode();
+    } else if (value instanceof RemoteWebElement) {
+      return nodeFactory.objectNode().put(ELEMENT_KEY, ((RemoteWebElement) value).getId());
+    } else if (value instanceof Map) {
+      ObjectNode node = nodeFactory.objectNode();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        node.set(String.valueOf(entry.getKey()), toJson(entry.getValue()));
+      }
+      return node;
+    } else if (value instanceof Collection || value instanceof Object[]) {
+      ArrayNode node = nodeFactory.arrayNode();
+      Iterable<?> items = value instanceof Collection ? (Collection<?>) value : Arrays.asList((Object[]) value);
+      for (Object item : items) {
+        node.add(toJson(item));
+      }
+      return node;
+    } else if (value instanceof Number || value instanceof Boolean) {
+      return mapper.valueToTree(value);
+    }
+    return nodeFactory.textNode(value.toString());
+  }
+}
@@ -0,0 +1,186 @@
+package appiumdriver;
+
+import appiumdriver.fake.FakeAppiumServer;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.RemoteWebElement;
+
+/**
+ * Replays the command logs written by the {@link CommandRecorder} against an Appium server, by
+ * default the fake one, and reports the commands whose result is not the recorded one. The
+ * elements of the recorded session are matched with the elements found by the replayed session.
+ *
+ * <pre>gradle replayCommands -PcommandLog=build/commands/DemoTests.updateProfileAccount-1.jsonl</pre>
+ */
+public final class CommandReplayer {
+
+  private static final Logger logger = LogManager.getLogger(CommandReplayer.class);
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+  private static final TypeReference<Map<String, Object>> PARAMETERS_TYPE =
+          new TypeReference<Map<String, Object>>() { };
+
+  private final URL serverUrl;
+
+  /**
+   * Creates a replayer.
+   *
+   * @param serverUrl URL of the Appium server the commands are replayed against
+   */
+  public CommandReplayer(URL serverUrl) {
+    this.serverUrl = serverUrl;
+  }
+
+  /**
+   * Replays a command log in a new session.
+   *
+   * @param file the command log
+   * @return the number of commands whose result is not the recorded one
+   * @throws IOException if the command log cannot be read
+   */
+  public int replay(File file) throws IOException {
+    List<JsonNode> commands = new ArrayList<>();
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isEmpty()) {
+          commands.add(mapper.readTree(line));
+        }
+      }
+    }
+
+    InstrumentedAndroidDriver driver = new InstrumentedAndroidDriver(serverUrl, sessionCapabilities());
+    Map<String, String> elementIds = new HashMap<>();
+    int mismatches = 0;
+    double recordedMillis = 0;
+    final long start = System.nanoTime();
+    try {
+      for (int i = 0; i < commands.size(); i++) {
+        JsonNode command = commands.get(i);
+        String name = command.get("command").asText();
+        String recordedStatus = command.get("status").asText();
+        recordedMillis += command.get("millis").asDouble();
+        Map<String, Object> parameters = mapper.convertValue(command.get("parameters"), PARAMETERS_TYPE);
+
+        String status = CommandRecorder.STATUS_OK;
+        Object value = null;
+        try {
+          value = driver.execute(name, mapElementIds(parameters, elementIds)).getValue();
+        } catch (RuntimeException e) {
+          status = e.getClass().getSimpleName();
+        }
+
+        if (!status.equals(recordedStatus)) {
+          mismatches++;
+          logger.warn("Command {} [{}] of {}: recorded {}, replayed {}", i + 1, name, file.getName(),
+                  recordedStatus, status);
+        } else if (command.has("value")) {
+          matchElements(command.get("value"), value, elementIds);
+        }
+      }
+    } finally {
+      driver.quit();
+    }
+    logger.info("Replayed {} commands of {} with {} mismatches, recorded remote time {} ms, replayed in {} ms",
+            commands.size(), file.getName(), mismatches, Math.round(recordedMillis),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    return mismatches;
+  }
+
+  /**
+   * Replays a command log, or all the command logs of a folder, and exits with an error status if
+   * a result is not the recorded one.
+   *
+   * @param args the command log or folder, and optionally the URL of the Appium server
+   * @throws IOException if a command log cannot be read
+   */
+  public static void main(String[] args) throws IOException {
+    File path = new File(args.length > 0 ? args[0] : System.getProperty("user.dir") + CommandRecorder.DEFAULT_FOLDER);
+    File[] files = path.isDirectory() ? path.listFiles((dir, name) -> name.endsWith(".jsonl")) : new File[] {path};
+    if (files == null || files.length == 0) {
+      throw new IllegalArgumentException("There is no command log in [" + path + "]");
+    }
+
+    int mismatches = 0;
+    try {
+      CommandReplayer replayer = new CommandReplayer(args.length > 1 ? toUrl(args[1])
+              : FakeAppiumServer.getInstance().getUrl());
+      for (File file : files) {
+        mismatches += replayer.replay(file);
+      }
+    } finally {
+      FakeAppiumServer.shutdown();
+    }
+    if (mismatches > 0) {
+      logger.error("{} replayed commands did not get the recorded result", mismatches);
+      System.exit(1);
+    }
+  }
+
+  private static DesiredCapabilities sessionCapabilities() {
+    DesiredCapabilities caps = new DesiredCapabilities();
+    caps.setCapability("platformName", "Android");
+    caps.setCapability("deviceName", "replay");
+    caps.setCapability("automationName", "UiAutomator2");
+    caps.setCapability("appPackage", AppiumDriverFactory.APP_PACKAGE);
+    // the replay device has no app installed by a previous session, so the session installs it
+    caps.setCapability("app", new File(AppiumDriverFactory.LOCAL_ANDROID_APP_NAME).getAbsolutePath());
+    return caps;
+  }
+
+  /**
+   * Replaces the ids of the recorded elements with the ids of the matching replayed elements.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> T mapElementIds(T value, Map<String, String> elementIds) {
+    if (value instanceof String) {
+      return (T) elementIds.getOrDefault(value, (String) value);
+    } else if (value instanceof Map) {
+      Map<String, Object> mapped = new LinkedHashMap<>();
+      ((Map<String, Object>) value).forEach((key, item) -> mapped.put(key, mapElementIds(item, elementIds)));
+      return (T) mapped;
+    } else if (value instanceof Collection) {
+      List<Object> mapped = new ArrayList<>();
+      ((Collection<Object>) value).forEach(item -> mapped.add(mapElementIds(item, elementIds)));
+      return (T) mapped;
+    }
+    return value;
+  }
+
+  private static void matchElements(JsonNode recorded, Object replayed, Map<String, String> elementIds) {
+    if (recorded.has(CommandRecorder.ELEMENT_KEY) && replayed instanceof RemoteWebElement) {
+      elementIds.put(recorded.get(CommandRecorder.ELEMENT_KEY).asText(), ((RemoteWebElement) replayed).getId());
+    } else if (recorded.isArray() && replayed instanceof List) {
+      List<?> replayedItems = (List<?>) replayed;
+      for (int i = 0; i < recorded.size() && i < replayedItems.size(); i++) {
+        matchElements(recorded.get(i), replayedItems.get(i), elementIds);
+      }
+    }
+  }
+
+  private static URL toUrl(String url) {
+    try {
+      return new URL(url);
+    } catch (MalformedURLException e) {
+      throw new IllegalArgumentException("The Appium server URL [" + url + "] is not valid", e);
+    }
+  }
+}
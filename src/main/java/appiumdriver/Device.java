@@ -0,0 +1,78 @@
+package appiumdriver;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * A device of the device pool with the settings needed to start an Appium session on it.
+ */
+public final class Device {
+
+  private final String name;
+  private final String udid;
+  private final String osVersion;
+  private final String appiumUrl;
+  private final int systemPort;
+
+  /**
+   * Creates a device.
+   *
+   * @param name the device name
+   * @param udid the device udid, null to let Appium pick the device
+   * @param osVersion the Android version of the device
+   * @param appiumUrl the URL of the Appium server that drives the device
+   * @param systemPort the UiAutomator2 system port, unique per device on the same host
+   */
+  public Device(String name, String udid, String osVersion, String appiumUrl, int systemPort) {
+    this.name = name;
+    this.udid = udid;
+    this.osVersion = osVersion;
+    this.appiumUrl = appiumUrl;
+    this.systemPort = systemPort;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getUdid() {
+    return udid;
+  }
+
+  public String getOsVersion() {
+    return osVersion;
+  }
+
+  public int getSystemPort() {
+    return systemPort;
+  }
+
+  /**
+   * Gets the URL of the Appium server that drives the device.
+   *
+   * @return the Appium server URL
+   */
+  public URL getAppiumUrl() {
+    try {
+      return new URL(appiumUrl);
+    } catch (MalformedURLException e) {
+      throw new IllegalArgumentException("The Appium URL [" + appiumUrl + "] of the device [" + name
+              + "] is not valid", e);
+    }
+  }
+
+  /**
+   * Gets the key that identifies the device, the udid when it is known or the name otherwise.
+   *
+   * @return the device key
+   */
+  public String getKey() {
+    return udid != null ? udid : name;
+  }
+
+  @Override
+  public String toString() {
+    return name + " [udid=" + udid + ", osVersion=" + osVersion + ", appiumUrl=" + appiumUrl
+            + ", systemPort=" + systemPort + "]";
+  }
+}
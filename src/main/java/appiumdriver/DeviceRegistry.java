@@ -0,0 +1,137 @@
+package appiumdriver;
+
+import environment.EnvironmentConfig;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Registry of the devices available to run the tests. Each test leases a device for its whole
+ * duration, so parallel TestNG threads never share a device. When all the devices are busy the
+ * threads wait in arrival order until one is released.
+ *
+ * <p>The devices are read from the "devices" list of the environment config file. When the list
+ * is missing, a single device is built from the device, osVersion, udid and appiumUrl system
+ * properties.</p>
+ */
+public final class DeviceRegistry {
+
+  private static final Logger logger = LogManager.getLogger(DeviceRegistry.class);
+
+  private static final String DEFAULT_APPIUM_URL = "http://127.0.0.1:4723/wd/hub";
+  private static final int DEFAULT_SYSTEM_PORT = 8200;
+  private static final int DEFAULT_LEASE_TIMEOUT_SECONDS = 600;
+
+  private static DeviceRegistry instance;
+
+  private final List<Device> devices;
+  private final BlockingQueue<Device> freeDevices;
+  private final long leaseTimeoutSeconds;
+
+  /**
+   * Creates a registry with the given devices.
+   *
+   * @param devices the devices of the pool
+   * @param leaseTimeoutSeconds maximum time to wait for a free device
+   */
+  public DeviceRegistry(List<Device> devices, long leaseTimeoutSeconds) {
+    if (devices.isEmpty()) {
+      throw new IllegalArgumentException("The device registry needs at least one device");
+    }
+    this.devices = Collections.unmodifiableList(new ArrayList<>(devices));
+    this.freeDevices = new ArrayBlockingQueue<>(devices.size(), true, devices);
+    this.leaseTimeoutSeconds = leaseTimeoutSeconds;
+  }
+
+  /**
+   * Gets the registry loaded from the environment config file.
+   *
+   * @return the shared device registry
+   */
+  public static synchronized DeviceRegistry getInstance() {
+    if (instance == null) {
+      List<Device> devices = loadDevices();
+      long timeout = Long.parseLong(System.getProperty("deviceLeaseTimeout",
+              Integer.toString(DEFAULT_LEASE_TIMEOUT_SECONDS)));
+      instance = new DeviceRegistry(devices, timeout);
+      logger.info("Device registry loaded with {} device(s): {}", devices.size(), devices);
+    }
+    return instance;
+  }
+
+  /**
+   * Leases a free device, waiting until one is released when all of them are busy.
+   *
+   * @return the leased device
+   */
+  public Device lease() {
+    logger.debug("Waiting for a free device, {} of {} available", freeDevices.size(), devices.size());
+    try {
+      Device device = freeDevices.poll(leaseTimeoutSeconds, TimeUnit.SECONDS);
+      if (device == null) {
+        throw new IllegalStateException("No device was released after " + leaseTimeoutSeconds + " seconds");
+      }
+      logger.info("Leased device {}", device.getName());
+      return device;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for a free device", e);
+    }
+  }
+
+  /**
+   * Gives a leased device back to the registry.
+   *
+   * @param device the device to release
+   */
+  public void release(Device device) {
+    logger.info("Released device {}", device.getName());
+    if (!freeDevices.offer(device)) {
+      logger.warn("The device {} was released more than once", device.getName());
+    }
+  }
+
+  /**
+   * Gets all the devices of the registry.
+   *
+   * @return the devices
+   */
+  public List<Device> getDevices() {
+    return devices;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Device> loadDevices() {
+    Object deviceSettings = EnvironmentConfig.getSetting("devices");
+    List<Device> devices = new ArrayList<>();
+    if (deviceSettings instanceof List) {
+      int index = 0;
+      for (Map<String, Object> settings : (List<Map<String, Object>>) deviceSettings) {
+        devices.add(new Device(
+                String.valueOf(settings.get("name")),
+                settings.get("udid") == null ? null : String.valueOf(settings.get("udid")),
+                String.valueOf(settings.get("osVersion")),
+                String.valueOf(settings.getOrDefault("appiumUrl", DEFAULT_APPIUM_URL)),
+                Integer.parseInt(String.valueOf(settings.getOrDefault("systemPort",
+                        DEFAULT_SYSTEM_PORT + index)))));
+        index++;
+      }
+    }
+    if (devices.isEmpty()) {
+      logger.debug("No devices in the config file, using the device system property");
+      devices.add(new Device(
+              System.getProperty("device").replace("-", " "),
+              System.getProperty("udid"),
+              System.getProperty("osVersion"),
+              System.getProperty("appiumUrl", DEFAULT_APPIUM_URL),
+              DEFAULT_SYSTEM_PORT));
+    }
+    return devices;
+  }
+}
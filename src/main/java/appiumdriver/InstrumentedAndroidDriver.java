@@ -0,0 +1,100 @@
+package appiumdriver;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.appium.java_client.MobileElement;
+import io.appium.java_client.android.AndroidDriver;
+import java.net.URL;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.Response;
+
+/**
+ * AndroidDriver that sees every command sent to the Appium server, including the element
+ * commands. It keeps a state version that changes with every command that may change the
+ * screen, so the callers can tell if what they read from the device is still current. The
+ * commands are also handed to the {@link CommandRecorder} of the current test.
+ */
+public class InstrumentedAndroidDriver extends AndroidDriver<MobileElement> {
+
+  /**
+   * Commands that only read the state of the device and never change the screen. The Appium
+   * specific names are written as strings because MobileCommand does not expose them.
+   */
+  private static final Set<String> READ_ONLY_COMMANDS = ImmutableSet.of(
+          DriverCommand.FIND_ELEMENT,
+          DriverCommand.FIND_ELEMENTS,
+          DriverCommand.FIND_CHILD_ELEMENT,
+          DriverCommand.FIND_CHILD_ELEMENTS,
+          DriverCommand.GET_ELEMENT_TEXT,
+          DriverCommand.GET_ELEMENT_ATTRIBUTE,
+          DriverCommand.GET_ELEMENT_TAG_NAME,
+          DriverCommand.GET_ELEMENT_RECT,
+          DriverCommand.GET_ELEMENT_LOCATION,
+          DriverCommand.GET_ELEMENT_SIZE,
+          DriverCommand.IS_ELEMENT_DISPLAYED,
+          DriverCommand.IS_ELEMENT_ENABLED,
+          DriverCommand.IS_ELEMENT_SELECTED,
+          DriverCommand.GET_PAGE_SOURCE,
+          DriverCommand.SCREENSHOT,
+          DriverCommand.ELEMENT_SCREENSHOT,
+          DriverCommand.GET_CAPABILITIES,
+          DriverCommand.GET_CURRENT_WINDOW_SIZE,
+          DriverCommand.GET_SCREEN_ORIENTATION,
+          DriverCommand.GET_CURRENT_CONTEXT_HANDLE,
+          DriverCommand.GET_CONTEXT_HANDLES,
+          DriverCommand.STATUS,
+          "getSession",
+          "getCurrentPackage",
+          "currentActivity",
+          "isKeyboardShown",
+          "queryAppState",
+          "getSettings",
+          "getDeviceTime");
+
+  private final AtomicLong stateVersion = new AtomicLong();
+
+  public InstrumentedAndroidDriver(URL remoteAddress, Capabilities desiredCapabilities) {
+    super(remoteAddress, desiredCapabilities);
+  }
+
+  /**
+   * Sends a command without parameters (screenshot, page source, hide keyboard, back, reset...).
+   * The java-client sends them to the RemoteWebDriver directly, skipping the method below, so they
+   * are routed through it here.
+   */
+  @Override
+  public Response execute(String driverCommand) {
+    return execute(driverCommand, ImmutableMap.of());
+  }
+
+  @Override
+  public Response execute(String driverCommand, Map<String, ?> parameters) {
+    // the new session command is sent from the super constructor, before the fields are set
+    if (stateVersion != null && !READ_ONLY_COMMANDS.contains(driverCommand)) {
+      stateVersion.incrementAndGet();
+    }
+    final long start = System.nanoTime();
+    try {
+      Response response = super.execute(driverCommand, parameters);
+      CommandRecorder.record(driverCommand, parameters, response.getValue(), null, System.nanoTime() - start);
+      return response;
+    } catch (RuntimeException e) {
+      CommandRecorder.record(driverCommand, parameters, null, e, System.nanoTime() - start);
+      throw e;
+    }
+  }
+
+  /**
+   * Gets the state version of the session. It changes every time a command that may change the
+   * screen (click, send keys, touch action, script...) is sent.
+   *
+   * @return the current state version
+   */
+  public long getStateVersion() {
+    return stateVersion.get();
+  }
+}
@@ -0,0 +1,36 @@
+package appiumdriver;
+
+/**
+ * Enum to represent how the runtime permissions of the app are granted: up front when the session
+ * is set up, or by the tests through the permission dialogs.
+ */
+public enum PermissionsMode {
+  GRANTED("granted"),
+  DIALOG("dialog");
+
+  private final String value;
+
+  PermissionsMode(String value) {
+    this.value = value;
+  }
+
+  /**
+   * Gets the enum using the mode value.
+   *
+   * @param value value of the selected mode: granted or dialog
+   * @return the selected mode
+   */
+  public static PermissionsMode getEnum(String value) {
+    for (PermissionsMode mode : values()) {
+      if (mode.value.equals(value)) {
+        return mode;
+      }
+    }
+    throw new IllegalArgumentException("The permissions mode [" + value + "] is not known.");
+  }
+
+  @Override
+  public String toString() {
+    return value;
+  }
+}
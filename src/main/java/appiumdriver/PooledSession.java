@@ -0,0 +1,78 @@
+package appiumdriver;
+
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.MobileElement;
+
+/**
+ * An Appium session kept alive by the {@link AppiumSessionPool} between tests.
+ */
+public final class PooledSession {
+
+  private final String key;
+  private final AppiumDriver<MobileElement> driver;
+  private final long creationMillis;
+  private final boolean prewarmed;
+  private int leaseCount;
+  private long leasedAtNanos;
+
+  PooledSession(String key, AppiumDriver<MobileElement> driver, long creationMillis, boolean prewarmed) {
+    this.key = key;
+    this.driver = driver;
+    this.creationMillis = creationMillis;
+    this.prewarmed = prewarmed;
+  }
+
+  /**
+   * Gets the key of the pool partition (device) this session belongs to.
+   *
+   * @return the pool key
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * Gets the driver of the session.
+   *
+   * @return the AppiumDriver
+   */
+  public AppiumDriver<MobileElement> getDriver() {
+    return driver;
+  }
+
+  /**
+   * Gets the time it took to create the session.
+   *
+   * @return the creation time in milliseconds
+   */
+  public long getCreationMillis() {
+    return creationMillis;
+  }
+
+  /**
+   * Tells if the session was created in the background before a test asked for it.
+   *
+   * @return true for a pre-warmed session
+   */
+  public boolean isPrewarmed() {
+    return prewarmed;
+  }
+
+  /**
+   * Gets the number of times the session was handed out.
+   *
+   * @return the number of leases
+   */
+  public int getLeaseCount() {
+    return leaseCount;
+  }
+
+  void markLeased() {
+    leaseCount++;
+    leasedAtNanos = System.nanoTime();
+  }
+
+  long getLeasedAtNanos() {
+    return leasedAtNanos;
+  }
+}
@@ -0,0 +1,87 @@
+package appiumdriver;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Counters of the {@link AppiumSessionPool}. All the times are in milliseconds.
+ */
+public final class SessionPoolMetrics {
+
+  private final AtomicLong sessionsCreated = new AtomicLong();
+  private final AtomicLong totalCreationMillis = new AtomicLong();
+  private final LongAccumulator maxCreationMillis = new LongAccumulator(Long::max, 0);
+  private final AtomicLong leases = new AtomicLong();
+  private final AtomicLong reuses = new AtomicLong();
+  private final AtomicLong totalAcquireMillis = new AtomicLong();
+  private final AtomicLong totalLeaseMillis = new AtomicLong();
+  private final AtomicLong recycledSessions = new AtomicLong();
+
+  void recordCreation(long millis) {
+    sessionsCreated.incrementAndGet();
+    totalCreationMillis.addAndGet(millis);
+    maxCreationMillis.accumulate(millis);
+  }
+
+  void recordLease(long acquireMillis, boolean reused) {
+    leases.incrementAndGet();
+    totalAcquireMillis.addAndGet(acquireMillis);
+    if (reused) {
+      reuses.incrementAndGet();
+    }
+  }
+
+  void recordRelease(long leaseMillis) {
+    totalLeaseMillis.addAndGet(leaseMillis);
+  }
+
+  void recordRecycle() {
+    recycledSessions.incrementAndGet();
+  }
+
+  public long getSessionsCreated() {
+    return sessionsCreated.get();
+  }
+
+  public long getAverageCreationMillis() {
+    long created = sessionsCreated.get();
+    return created == 0 ? 0 : totalCreationMillis.get() / created;
+  }
+
+  public long getMaxCreationMillis() {
+    return maxCreationMillis.get();
+  }
+
+  public long getLeases() {
+    return leases.get();
+  }
+
+  public long getReuses() {
+    return reuses.get();
+  }
+
+  public long getAverageAcquireMillis() {
+    long leased = leases.get();
+    return leased == 0 ? 0 : totalAcquireMillis.get() / leased;
+  }
+
+  public long getTotalLeaseMillis() {
+    return totalLeaseMillis.get();
+  }
+
+  public long getRecycledSessions() {
+    return recycledSessions.get();
+  }
+
+  @Override
+  public String toString() {
+    return "sessionsCreated=" + getSessionsCreated()
+            + ", avgCreationMs=" + getAverageCreationMillis()
+            + ", maxCreationMs=" + getMaxCreationMillis()
+            + ", leases=" + getLeases()
+            + ", reuses=" + getReuses()
+            + ", avgAcquireMs=" + getAverageAcquireMillis()
+            + ", totalLeaseMs=" + getTotalLeaseMillis()
+            + ", recycled=" + getRecycledSessions();
+  }
+}
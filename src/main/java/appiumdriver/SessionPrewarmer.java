@@ -0,0 +1,92 @@
+package appiumdriver;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+
+/**
+ * Creates the sessions of the workers in parallel as soon as the suite starts, so the first test
+ * of each worker thread gets a session that is ready or already being created instead of creating
+ * it on its first screen. A session creation that fails is logged when it fails, before the tests
+ * need the session, and the worker then creates its session itself.
+ *
+ * <p>One session is pre-warmed for each of the first devices of the {@link DeviceRegistry}, as
+ * many as the worker threads given by the system property threads. The pre-warmed sessions go to
+ * the {@link AppiumSessionPool}, so the pre-warm is off when the session pool is. It is turned off
+ * with the system property prewarmSessions=false. The time from the start of the suite to the first
+ * session of each worker is logged, with or without the pre-warm.
+ */
+public final class SessionPrewarmer {
+
+  private static final Logger logger = LogManager.getLogger(SessionPrewarmer.class);
+
+  private static final Map<String, Long> timeToFirstSession = new ConcurrentSkipListMap<>();
+  private static volatile long suiteStartNanos = System.nanoTime();
+
+  /**
+   * Private constructor to hide the implicit one.
+   */
+  private SessionPrewarmer() {
+  }
+
+  /**
+   * Starts creating the sessions of the workers in the background.
+   */
+  public static void start() {
+    suiteStartNanos = System.nanoTime();
+    if (!Boolean.parseBoolean(System.getProperty("prewarmSessions", "true"))
+            || !Boolean.parseBoolean(System.getProperty("sessionPool", "true"))) {
+      logger.debug("The sessions are not pre-warmed");
+      return;
+    }
+
+    List<Device> devices = DeviceRegistry.getInstance().getDevices();
+    int workers = Math.min(Integer.parseInt(System.getProperty("threads", "1")), devices.size());
+    AtomicInteger threadNumber = new AtomicInteger(1);
+    ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+      Thread thread = new Thread(() -> {
+        // routes the logs of the session creation to its own file, check the log4j2.xml config file
+        ThreadContext.put("threadId", Thread.currentThread().getName());
+        runnable.run();
+      }, "session-prewarm-" + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    for (Device device : devices.subList(0, workers)) {
+      AppiumDriverFactory factory = new AppiumDriverFactory(device);
+      AppiumSessionPool.getInstance().prewarm(device.getKey(), factory::instantiateAppiumDriver, executor);
+    }
+    // the threads end once the sessions are created
+    executor.shutdown();
+    logger.info("Pre-warming {} session(s) for the devices {}", workers, devices.subList(0, workers));
+  }
+
+  /**
+   * Records the first session of the current worker thread.
+   *
+   * @param session the session, null when it was not created by the session pool
+   */
+  static void recordFirstSession(PooledSession session) {
+    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - suiteStartNanos);
+    if (timeToFirstSession.putIfAbsent(Thread.currentThread().getName(), millis) == null) {
+      logger.info("Time to the first session of the worker: {} ms, {}", millis,
+              session != null && session.isPrewarmed() ? "pre-warmed" : "created on first use");
+    }
+  }
+
+  /**
+   * Logs the time from the start of the suite to the first session of each worker.
+   */
+  public static void logTimeToFirstSession() {
+    if (!timeToFirstSession.isEmpty()) {
+      logger.info("Time to the first session per worker (ms): {}", timeToFirstSession);
+    }
+  }
+}
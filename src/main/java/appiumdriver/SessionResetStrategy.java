@@ -0,0 +1,35 @@
+package appiumdriver;
+
+/**
+ * Enum to represent how the app state is reset when a pooled session is handed out again.
+ */
+public enum SessionResetStrategy {
+  CLEAR_DATA("clear"),
+  TERMINATE_ACTIVATE("terminate");
+
+  private final String value;
+
+  SessionResetStrategy(String value) {
+    this.value = value;
+  }
+
+  /**
+   * Gets the enum using the strategy value.
+   *
+   * @param value value of the selected strategy: clear or terminate
+   * @return the selected strategy
+   */
+  public static SessionResetStrategy getEnum(String value) {
+    for (SessionResetStrategy strategy : values()) {
+      if (strategy.value.equals(value)) {
+        return strategy;
+      }
+    }
+    throw new IllegalArgumentException("The session reset strategy [" + value + "] is not known.");
+  }
+
+  @Override
+  public String toString() {
+    return value;
+  }
+}
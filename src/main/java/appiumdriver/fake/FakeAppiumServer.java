@@ -0,0 +1,225 @@
+package appiumdriver.fake;
+
+import appiumdriver.AppiumDriverFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * In-process WebDriver endpoint that answers the Appium commands used by the page objects from
+ * recorded page sources of the James Rider screens, so the tests run without a device or an Appium
+ * server. Selected with -DdriverMode=fake; the latency of the commands is set with the
+ * fakeAppiumLatency system property (see {@link FakeCommandLatency}).
+ */
+public final class FakeAppiumServer {
+
+  private static final Logger logger = LogManager.getLogger(FakeAppiumServer.class);
+
+  private static final String BASE_PATH = "/wd/hub";
+  private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+
+  private static FakeAppiumServer instance;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final Map<String, FakeSession> sessions = new ConcurrentHashMap<>();
+  private final Set<String> devicesWithApp = ConcurrentHashMap.newKeySet();
+  private final FakeScreenFlow flow;
+  private final FakeCommandLatency latency;
+  private final HttpServer server;
+  private final ExecutorService executor;
+
+  /**
+   * Starts a fake Appium server on the loopback interface.
+   *
+   * @param port the port of the server, 0 to use any free port
+   * @param flow the screens served
+   * @param latency the latency added to the commands
+   * @throws IOException when the server can not be started
+   */
+  FakeAppiumServer(int port, FakeScreenFlow flow, FakeCommandLatency latency) throws IOException {
+    this.flow = flow;
+    this.latency = latency;
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext(BASE_PATH, this::handle);
+    executor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "fake-appium");
+      thread.setDaemon(true);
+      return thread;
+    });
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /**
+   * Gets the server shared by the tests, started on the first call with the fakeAppiumPort and
+   * fakeAppiumLatency system properties.
+   *
+   * @return the fake Appium server
+   */
+  public static synchronized FakeAppiumServer getInstance() {
+    if (instance == null) {
+      int port = Integer.parseInt(System.getProperty("fakeAppiumPort", "0"));
+      FakeCommandLatency latency = new FakeCommandLatency(System.getProperty("fakeAppiumLatency", "0"));
+      try {
+        instance = new FakeAppiumServer(port, FakeScreenFlow.load(AppiumDriverFactory.APP_PACKAGE), latency);
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to start the fake Appium server", e);
+      }
+      logger.info("Fake Appium server started on {} with latency {}", instance.getUrl(), latency);
+    }
+    return instance;
+  }
+
+  /**
+   * Stops the shared server, if it was started.
+   */
+  public static synchronized void shutdown() {
+    if (instance != null) {
+      instance.stop();
+      instance = null;
+    }
+  }
+
+  /**
+   * Gets the URL to give to the AppiumDriver.
+   *
+   * @return the URL of the server
+   */
+  public URL getUrl() {
+    try {
+      return new URL("http", server.getAddress().getHostString(), server.getAddress().getPort(), BASE_PATH);
+    } catch (MalformedURLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Stops the server and drops its sessions.
+   */
+  public void stop() {
+    server.stop(0);
+    executor.shutdownNow();
+    sessions.clear();
+    logger.info("Fake Appium server stopped");
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    String method = exchange.getRequestMethod();
+    String path = exchange.getRequestURI().getPath().substring(BASE_PATH.length());
+    int status = 200;
+    Object value;
+    try {
+      value = route(method, toSegments(path), readBody(exchange));
+    } catch (FakeWebDriverError e) {
+      logger.debug("{} {}: {}", method, path, e.getMessage());
+      status = e.getHttpStatus();
+      value = ImmutableMap.of("error", e.getError(), "message", e.getMessage(), "stacktrace", "");
+    } catch (RuntimeException e) {
+      logger.error("{} {} failed", method, path, e);
+      status = 500;
+      value = ImmutableMap.of("error", "unknown error", "message", String.valueOf(e.getMessage()),
+              "stacktrace", "");
+    }
+    byte[] response = mapper.writeValueAsBytes(Collections.singletonMap("value", value));
+    exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+    exchange.sendResponseHeaders(status, response.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(response);
+    }
+  }
+
+  private Object route(String method, List<String> path, Map<String, Object> body) {
+    if (path.isEmpty()) {
+      throw FakeWebDriverError.unknownCommand(method, "/");
+    }
+    if ("GET".equals(method) && path.size() == 1 && "status".equals(path.get(0))) {
+      return ImmutableMap.of("ready", true, "message", "The fake Appium server is ready");
+    }
+    if (!"session".equals(path.get(0))) {
+      throw FakeWebDriverError.unknownCommand(method, String.join("/", path));
+    }
+    if (path.size() == 1 && "POST".equals(method)) {
+      return createSession(body);
+    }
+    String sessionId = path.get(1);
+    if (path.size() == 2 && "DELETE".equals(method)) {
+      sessions.remove(sessionId);
+      logger.debug("Session {} deleted", sessionId);
+      return null;
+    }
+    FakeSession session = sessions.get(sessionId);
+    if (session == null) {
+      throw FakeWebDriverError.invalidSession(sessionId);
+    }
+    if (path.size() == 2 && "GET".equals(method)) {
+      return session.getCapabilities();
+    }
+    return session.execute(method, path.subList(2, path.size()), body);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> createSession(Map<String, Object> body) {
+    Map<String, Object> capabilities = new LinkedHashMap<>();
+    Object desiredCapabilities = body.get("desiredCapabilities");
+    if (desiredCapabilities instanceof Map) {
+      capabilities.putAll((Map<String, Object>) desiredCapabilities);
+    }
+    latency.pause(FakeCommandLatency.SESSION);
+    String device = String.valueOf(capabilities.getOrDefault("udid", capabilities.get("deviceName")));
+    if (capabilities.get("app") != null) {
+      // as UiAutomator2, which checks the app of the app capability against the installed one
+      latency.pause(FakeCommandLatency.INSTALL);
+      devicesWithApp.add(device);
+    } else if (!devicesWithApp.contains(device)) {
+      throw FakeWebDriverError.sessionNotCreated("The app " + flow.getAppPackage() + " is not installed on the device "
+              + device);
+    }
+    capabilities.put("platformName", "Android");
+    capabilities.put("automationName", "UiAutomator2");
+    FakeSession session = new FakeSession(UUID.randomUUID().toString(), flow, latency, capabilities,
+            devicesWithApp);
+    sessions.put(session.getId(), session);
+    logger.debug("Session {} created", session.getId());
+    return ImmutableMap.of("sessionId", session.getId(), "capabilities", capabilities);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+    try (InputStream input = exchange.getRequestBody()) {
+      byte[] body = ByteStreams.toByteArray(input);
+      if (body.length == 0) {
+        return Collections.emptyMap();
+      }
+      Object parsed = mapper.readValue(body, Object.class);
+      return parsed instanceof Map ? (Map<String, Object>) parsed : Collections.emptyMap();
+    }
+  }
+
+  private static List<String> toSegments(String path) {
+    List<String> segments = new ArrayList<>(Arrays.asList(path.split("/")));
+    segments.removeIf(String::isEmpty);
+    return segments;
+  }
+}
@@ -0,0 +1,62 @@
+package appiumdriver.fake;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency added by the {@link FakeAppiumServer} to each command, to emulate a device. It is
+ * configured as a list of category=millis pairs, the categories being session (the session
+ * creation), install (the check and install of the app of a session), find, click, sendKeys, setValue, screenshot, source and default, e.g. {@code default=5,find=40,screenshot=150}. A single number
+ * applies to all the commands.
+ */
+final class FakeCommandLatency {
+
+  static final String SESSION = "session";
+  static final String INSTALL = "install";
+  static final String FIND = "find";
+  static final String CLICK = "click";
+  static final String SEND_KEYS = "sendKeys";
+  static final String SET_VALUE = "setValue";
+  static final String SCREENSHOT = "screenshot";
+  static final String SOURCE = "source";
+  static final String DEFAULT = "default";
+
+  private final Map<String, Long> latencies = new HashMap<>();
+
+  FakeCommandLatency(String configuration) {
+    if (configuration == null || configuration.trim().isEmpty()) {
+      return;
+    }
+    for (String pair : configuration.split(",")) {
+      String[] values = pair.trim().split("=", 2);
+      if (values.length == 1) {
+        latencies.put(DEFAULT, Long.parseLong(values[0].trim()));
+      } else {
+        latencies.put(values[0].trim(), Long.parseLong(values[1].trim()));
+      }
+    }
+  }
+
+  /**
+   * Waits the latency of a category of commands.
+   *
+   * @param category the command category
+   */
+  void pause(String category) {
+    long millis = latencies.getOrDefault(category, latencies.getOrDefault(DEFAULT, 0L));
+    if (millis <= 0) {
+      return;
+    }
+    try {
+      TimeUnit.MILLISECONDS.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return latencies.toString();
+  }
+}
@@ -0,0 +1,209 @@
+package appiumdriver.fake;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+import org.yaml.snakeyaml.Yaml;
+
+/**
+ * The screens served by the {@link FakeAppiumServer} and the clicks moving from one screen to
+ * another, loaded from the fakeappium/flow.yaml resource. Each screen is a UiAutomator2 page
+ * source; the attributes left out of the resource files are filled with the UiAutomator2
+ * defaults. A screen with a scrollable list can also give all the rows of the list, of which the
+ * page source only shows the first ones.
+ */
+final class FakeScreenFlow {
+
+  private static final String RESOURCE_FOLDER = "fakeappium/";
+  private static final String FLOW_FILE = "flow.yaml";
+
+  private final String appPackage;
+  private final String startScreen;
+  private final Map<String, Document> screens = new HashMap<>();
+  private final Map<String, Map<String, String>> transitions = new HashMap<>();
+  private final Map<String, List<String>> listRows = new HashMap<>();
+  private final List<String> permissions = new ArrayList<>();
+
+  private FakeScreenFlow(String appPackage, String startScreen) {
+    this.appPackage = appPackage;
+    this.startScreen = startScreen;
+  }
+
+  /**
+   * Loads the screens of the flow.yaml resource.
+   *
+   * @param appPackage the package of the app, set on the nodes of the screens
+   * @return the screen flow
+   */
+  @SuppressWarnings("unchecked")
+  static FakeScreenFlow load(String appPackage) {
+    Map<String, Object> flow;
+    try (InputStream input = openResource(FLOW_FILE)) {
+      flow = new Yaml().load(input);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read the fake Appium screen flow", e);
+    }
+
+    FakeScreenFlow screenFlow = new FakeScreenFlow(appPackage, (String) flow.get("start"));
+    if (flow.get("permissions") instanceof List) {
+      screenFlow.permissions.addAll((List<String>) flow.get("permissions"));
+    }
+    Map<String, Map<String, Object>> screens = (Map<String, Map<String, Object>>) flow.get("screens");
+    for (Map.Entry<String, Map<String, Object>> screen : screens.entrySet()) {
+      String name = screen.getKey();
+      screenFlow.screens.put(name, screenFlow.parseScreen((String) screen.getValue().get("source")));
+      Map<String, String> screenTransitions = (Map<String, String>) screen.getValue().get("transitions");
+      screenFlow.transitions.put(name, screenTransitions == null
+              ? Collections.emptyMap() : new LinkedHashMap<>(screenTransitions));
+      if (screen.getValue().get("rows") != null) {
+        screenFlow.listRows.put(name, readRows((String) screen.getValue().get("rows")));
+      }
+    }
+    for (Map<String, String> screenTransitions : screenFlow.transitions.values()) {
+      for (String target : screenTransitions.values()) {
+        if (!screenFlow.screens.containsKey(target)) {
+          throw new IllegalStateException("The fake Appium screen [" + target + "] is not defined");
+        }
+      }
+    }
+    if (!screenFlow.screens.containsKey(screenFlow.startScreen)) {
+      throw new IllegalStateException("The fake Appium start screen [" + screenFlow.startScreen
+              + "] is not defined");
+    }
+    return screenFlow;
+  }
+
+  String getAppPackage() {
+    return appPackage;
+  }
+
+  String getStartScreen() {
+    return startScreen;
+  }
+
+  List<String> getPermissions() {
+    return permissions;
+  }
+
+  /**
+   * Creates a new copy of a screen, that can be changed by the commands of a session.
+   *
+   * @param name the screen name
+   * @return the page source of the screen
+   */
+  Document newScreen(String name) {
+    return (Document) screens.get(name).cloneNode(true);
+  }
+
+  /**
+   * Gets the clicks leaving a screen.
+   *
+   * @param name the screen name
+   * @return the target screens by the XPath of the clicked elements
+   */
+  Map<String, String> getTransitions(String name) {
+    return transitions.get(name);
+  }
+
+  /**
+   * Gets all the rows of the scrollable list of a screen.
+   *
+   * @param name the screen name
+   * @return the texts of the rows, empty when the page source of the screen holds the whole list
+   */
+  List<String> getListRows(String name) {
+    return listRows.getOrDefault(name, Collections.emptyList());
+  }
+
+  private static List<String> readRows(String source) {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(openResource(source),
+            StandardCharsets.UTF_8))) {
+      return reader.lines()
+              .filter(row -> !row.isEmpty() && !row.startsWith("#"))
+              .collect(Collectors.toList());
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read the fake Appium list rows " + source, e);
+    }
+  }
+
+  private Document parseScreen(String source) {
+    try (InputStream input = openResource(source)) {
+      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+      factory.setIgnoringComments(true);
+      Document document = factory.newDocumentBuilder().parse(input);
+      removeWhitespace(document.getDocumentElement());
+      fillDefaults(document.getDocumentElement());
+      return document;
+    } catch (IOException | ParserConfigurationException | SAXException e) {
+      throw new IllegalStateException("Unable to read the fake Appium screen " + source, e);
+    }
+  }
+
+  private void fillDefaults(Element parent) {
+    NodeList children = parent.getChildNodes();
+    for (int i = 0; i < children.getLength(); i++) {
+      Element node = (Element) children.item(i);
+      setDefault(node, "index", Integer.toString(i));
+      setDefault(node, "package", parent.hasAttribute("package") ? parent.getAttribute("package") : appPackage);
+      setDefault(node, "class", node.getTagName());
+      setDefault(node, "text", "");
+      setDefault(node, "resource-id", "");
+      setDefault(node, "content-desc", "");
+      setDefault(node, "checkable", "false");
+      setDefault(node, "checked", "false");
+      setDefault(node, "clickable", "false");
+      setDefault(node, "enabled", "true");
+      setDefault(node, "focusable", "false");
+      setDefault(node, "focused", "false");
+      setDefault(node, "long-clickable", "false");
+      setDefault(node, "password", "false");
+      setDefault(node, "scrollable", "false");
+      setDefault(node, "selected", "false");
+      setDefault(node, "bounds", parent.getAttribute("bounds"));
+      setDefault(node, "displayed", "true");
+      fillDefaults(node);
+    }
+  }
+
+  private static void setDefault(Element node, String attribute, String value) {
+    if (!node.hasAttribute(attribute)) {
+      node.setAttribute(attribute, value);
+    }
+  }
+
+  private static void removeWhitespace(Node parent) {
+    NodeList children = parent.getChildNodes();
+    for (int i = children.getLength() - 1; i >= 0; i--) {
+      Node child = children.item(i);
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        removeWhitespace(child);
+      } else {
+        parent.removeChild(child);
+      }
+    }
+  }
+
+  private static InputStream openResource(String name) throws IOException {
+    InputStream input = FakeScreenFlow.class.getClassLoader().getResourceAsStream(RESOURCE_FOLDER + name);
+    if (input == null) {
+      throw new IOException("The resource " + RESOURCE_FOLDER + name + " does not exist");
+    }
+    return input;
+  }
+}
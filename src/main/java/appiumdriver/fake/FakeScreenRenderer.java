@@ -0,0 +1,104 @@
+package appiumdriver.fake;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import javax.imageio.ImageIO;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Draws the screenshots of the {@link FakeAppiumServer}: a wireframe of the displayed nodes of the
+ * page source, where the texts are drawn as bars as long as the text. The same page source always
+ * gives the same image, and no font is needed.
+ */
+final class FakeScreenRenderer {
+
+  static final int SCREEN_WIDTH = 1080;
+  static final int SCREEN_HEIGHT = 2340;
+
+  private static final int SCALE = 3;
+  private static final int CHARACTER_WIDTH = 7;
+  private static final int TEXT_HEIGHT = 6;
+  private static final Color BACKGROUND = Color.WHITE;
+  private static final Color BORDER = new Color(0xB0BEC5);
+  private static final Color CLICKABLE = new Color(0xE3F2FD);
+  private static final Color TEXT = new Color(0x37474F);
+
+  private FakeScreenRenderer() {
+  }
+
+  /**
+   * Draws the page source as a PNG image.
+   *
+   * @param root the root of the page source
+   * @return the PNG bytes
+   */
+  static byte[] render(Element root) {
+    BufferedImage image = new BufferedImage(SCREEN_WIDTH / SCALE, SCREEN_HEIGHT / SCALE,
+            BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    try {
+      graphics.setColor(BACKGROUND);
+      graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+      drawChildren(graphics, root);
+    } finally {
+      graphics.dispose();
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try {
+      ImageIO.write(image, "png", output);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return output.toByteArray();
+  }
+
+  /**
+   * Parses the bounds attribute of a node, in the UiAutomator2 format [x1,y1][x2,y2].
+   *
+   * @param node the node
+   * @return the bounds of the node
+   */
+  static Rectangle getBounds(Element node) {
+    String[] values = node.getAttribute("bounds").replaceAll("[\\[\\]]", ",").split(",+");
+    if (values.length < 5) {
+      return new Rectangle();
+    }
+    int x1 = Integer.parseInt(values[1]);
+    int y1 = Integer.parseInt(values[2]);
+    return new Rectangle(x1, y1, Integer.parseInt(values[3]) - x1, Integer.parseInt(values[4]) - y1);
+  }
+
+  private static void drawChildren(Graphics2D graphics, Element parent) {
+    NodeList children = parent.getChildNodes();
+    for (int i = 0; i < children.getLength(); i++) {
+      Element node = (Element) children.item(i);
+      if ("false".equals(node.getAttribute("displayed"))) {
+        continue;
+      }
+      Rectangle bounds = getBounds(node);
+      int x = bounds.x / SCALE;
+      int y = bounds.y / SCALE;
+      int width = bounds.width / SCALE;
+      int height = bounds.height / SCALE;
+      if ("true".equals(node.getAttribute("clickable"))) {
+        graphics.setColor(CLICKABLE);
+        graphics.fillRect(x, y, width, height);
+      }
+      graphics.setColor(BORDER);
+      graphics.drawRect(x, y, width, height);
+      String text = node.getAttribute("text");
+      if (!text.isEmpty()) {
+        graphics.setColor(TEXT);
+        graphics.fillRect(x + TEXT_HEIGHT, y + (height - TEXT_HEIGHT) / 2,
+                Math.min(text.length() * CHARACTER_WIDTH, Math.max(0, width - 2 * TEXT_HEIGHT)), TEXT_HEIGHT);
+      }
+      drawChildren(graphics, node);
+    }
+  }
+}
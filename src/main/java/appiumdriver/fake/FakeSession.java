@@ -0,0 +1,682 @@
+package appiumdriver.fake;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.awt.Rectangle;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * A session of the {@link FakeAppiumServer}. The session holds its own copy of the current screen,
+ * so the text typed in a session is only seen by that session, and answers the commands on it.
+ * The commands of a session are run one at a time.
+ */
+final class FakeSession {
+
+  static final String ELEMENT_KEY = "element-6066-11e4-a52e-4f735466cecf";
+  private static final String LEGACY_ELEMENT_KEY = "ELEMENT";
+  private static final String NATIVE_CONTEXT = "NATIVE_APP";
+  private static final String EDIT_TEXT = "android.widget.EditText";
+  private static final int APP_STATE_NOT_RUNNING = 1;
+  private static final int APP_STATE_RUNNING_IN_FOREGROUND = 4;
+
+  private static final String UI_SELECTOR = "new UiSelector()";
+  private static final String SCROLL_INTO_VIEW = ".scrollIntoView(";
+  private static final Pattern MAX_SEARCH_SWIPES = Pattern.compile("\\.setMaxSearchSwipes\\((\\d+)\\)");
+
+  /**
+   * Swipes of a UiScrollable search when none is set.
+   */
+  private static final int DEFAULT_MAX_SEARCH_SWIPES = 30;
+
+  /**
+   * Part of the list moved by a UiScrollable swipe, which leaves 10 % of the list untouched at each
+   * end.
+   */
+  private static final double SWIPE_RATIO = 0.8;
+  private static final Pattern UI_SELECTOR_METHOD = Pattern.compile(
+          "\\.(\\w+)\\((?:\"((?:[^\"\\\\]|\\\\.)*)\"|(\\w+))\\)");
+
+  private final String id;
+  private final FakeScreenFlow flow;
+  private final FakeCommandLatency latency;
+  private final Map<String, Object> capabilities;
+  private final XPath xpath = XPathFactory.newInstance().newXPath();
+  private final Map<String, Element> elements = new HashMap<>();
+  private final Map<Element, String> elementIds = new IdentityHashMap<>();
+  private long lastElementId;
+  private String screenName;
+  private Document screen;
+  private byte[] screenshot;
+  private boolean appRunning;
+  private boolean keyboardShown;
+  private Element focusedElement;
+  private int listOffset;
+  private final Set<String> grantedPermissions = new TreeSet<>();
+  private final Set<String> devicesWithApp;
+  private final String device;
+
+  FakeSession(String id, FakeScreenFlow flow, FakeCommandLatency latency, Map<String, Object> capabilities,
+          Set<String> devicesWithApp) {
+    this.id = id;
+    this.flow = flow;
+    this.latency = latency;
+    this.capabilities = capabilities;
+    this.devicesWithApp = devicesWithApp;
+    this.device = String.valueOf(capabilities.getOrDefault("udid", capabilities.get("deviceName")));
+    if (Boolean.parseBoolean(String.valueOf(capabilities.get("autoGrantPermissions")))) {
+      grantedPermissions.addAll(flow.getPermissions());
+    }
+    launchApp();
+  }
+
+  String getId() {
+    return id;
+  }
+
+  Map<String, Object> getCapabilities() {
+    return capabilities;
+  }
+
+  /**
+   * Runs a command of the session.
+   *
+   * @param method the HTTP method
+   * @param path the path segments after the session id
+   * @param body the JSON body of the request
+   * @return the value answered to the client
+   */
+  synchronized Object execute(String method, List<String> path, Map<String, Object> body) {
+    String command = path.isEmpty() ? "" : path.get(0);
+    switch (method + " " + command) {
+      case "POST element":
+        if (path.size() == 1) {
+          return toReference(findElement(null, body));
+        }
+        return executeOnElement(method, path, body);
+      case "GET element":
+        return executeOnElement(method, path, body);
+      case "POST elements":
+        return toReferences(findElements(null, body));
+      case "GET source":
+        latency.pause(FakeCommandLatency.SOURCE);
+        return getPageSource();
+      case "GET screenshot":
+        latency.pause(FakeCommandLatency.SCREENSHOT);
+        return Base64.getEncoder().encodeToString(getScreenshot());
+      case "GET window":
+        return ImmutableMap.of("x", 0, "y", 0, "width", FakeScreenRenderer.SCREEN_WIDTH,
+                "height", FakeScreenRenderer.SCREEN_HEIGHT);
+      case "GET context":
+        return NATIVE_CONTEXT;
+      case "GET contexts":
+        return ImmutableList.of(NATIVE_CONTEXT);
+      case "GET orientation":
+        return "PORTRAIT";
+      case "POST timeouts":
+      case "POST actions":
+      case "DELETE actions":
+        return null;
+      case "POST execute":
+        return executeScript(body);
+      case "POST touch":
+        touchPerform(body);
+        return null;
+      case "GET appium":
+      case "POST appium":
+        return executeAppiumCommand(method, path, body);
+      default:
+        throw FakeWebDriverError.unknownCommand(method, String.join("/", path));
+    }
+  }
+
+  private Object executeOnElement(String method, List<String> path, Map<String, Object> body) {
+    Element element = getElement(path.get(1));
+    String command = path.size() > 2 ? path.get(2) : "";
+    switch (method + " " + command) {
+      case "POST click":
+        click(element);
+        return null;
+      case "POST value":
+        sendKeys(element, body);
+        return null;
+      case "POST clear":
+        setText(element, "");
+        return null;
+      case "POST element":
+        return toReference(findElement(element, body));
+      case "POST elements":
+        return toReferences(findElements(element, body));
+      case "GET text":
+        return element.getAttribute("text");
+      case "GET name":
+        return element.getAttribute("class");
+      case "GET displayed":
+        return !"false".equals(element.getAttribute("displayed"));
+      case "GET enabled":
+        return "true".equals(element.getAttribute("enabled"));
+      case "GET selected":
+        return "true".equals(element.getAttribute("selected"));
+      case "GET attribute":
+        return getAttribute(element, path.get(3));
+      case "GET rect":
+        Rectangle bounds = FakeScreenRenderer.getBounds(element);
+        return ImmutableMap.of("x", bounds.x, "y", bounds.y, "width", bounds.width, "height", bounds.height);
+      case "GET location":
+        Rectangle location = FakeScreenRenderer.getBounds(element);
+        return ImmutableMap.of("x", location.x, "y", location.y);
+      case "GET size":
+        Rectangle size = FakeScreenRenderer.getBounds(element);
+        return ImmutableMap.of("width", size.width, "height", size.height);
+      case "GET screenshot":
+        latency.pause(FakeCommandLatency.SCREENSHOT);
+        return Base64.getEncoder().encodeToString(getScreenshot());
+      default:
+        throw FakeWebDriverError.unknownCommand(method, String.join("/", path));
+    }
+  }
+
+  private Object executeAppiumCommand(String method, List<String> path, Map<String, Object> body) {
+    if (path.size() > 3 && "element".equals(path.get(1))) {
+      return executeAppiumElementCommand(method, path, body);
+    }
+    String command = path.size() > 2 ? path.get(2) : "";
+    switch (method + " " + command) {
+      case "POST hide_keyboard":
+        keyboardShown = false;
+        return null;
+      case "GET is_keyboard_shown":
+        return keyboardShown;
+      case "POST terminate_app":
+        boolean wasRunning = appRunning;
+        appRunning = false;
+        return wasRunning;
+      case "POST activate_app":
+        if (!appRunning) {
+          launchApp();
+        }
+        return null;
+      case "POST app_state":
+        return appRunning ? APP_STATE_RUNNING_IN_FOREGROUND : APP_STATE_NOT_RUNNING;
+      case "GET current_package":
+        return flow.getAppPackage();
+      case "POST app_installed":
+        return flow.getAppPackage().equals(body.get("bundleId")) && devicesWithApp.contains(device);
+      case "POST install_app":
+        latency.pause(FakeCommandLatency.INSTALL);
+        devicesWithApp.add(device);
+        return null;
+      case "GET current_activity":
+        return ".viewlayer.launcher.LauncherActivity";
+      default:
+        throw FakeWebDriverError.unknownCommand(method, String.join("/", path));
+    }
+  }
+
+  private Object executeAppiumElementCommand(String method, List<String> path, Map<String, Object> body) {
+    Element element = getElement(path.get(2));
+    switch (method + " " + path.get(3)) {
+      case "POST value":
+        latency.pause(FakeCommandLatency.SET_VALUE);
+        setText(element, element.getAttribute("text") + getText(body));
+        return null;
+      case "POST replace_value":
+        latency.pause(FakeCommandLatency.SET_VALUE);
+        setText(element, getText(body));
+        return null;
+      default:
+        throw FakeWebDriverError.unknownCommand(method, String.join("/", path));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object executeScript(Map<String, Object> body) {
+    String script = String.valueOf(body.get("script"));
+    List<Map<String, Object>> args = (List<Map<String, Object>>) body.get("args");
+    switch (script) {
+      case "mobile: clearApp":
+        // as pm clear, clearing the app data revokes its runtime permissions
+        grantedPermissions.clear();
+        launchApp();
+        return null;
+      case "mobile: getPermissions":
+        return getPermissions(args == null || args.isEmpty() ? null : (String) args.get(0).get("type"));
+      case "mobile: changePermissions":
+        if (args == null || args.isEmpty()) {
+          throw FakeWebDriverError.invalidArgument("The permissions to change are missing");
+        }
+        changePermissions(args.get(0));
+        return null;
+      case "mobile: type":
+        typeInFocusedElement(args == null || args.isEmpty() ? null : (String) args.get(0).get("text"));
+        return null;
+      case "mobile: shell":
+        throw FakeWebDriverError.unknownError("Potentially insecure feature 'adb_shell' has not been enabled");
+      default:
+        return null;
+    }
+  }
+
+  private List<String> getPermissions(String type) {
+    List<String> permissions = new ArrayList<>();
+    for (String permission : flow.getPermissions()) {
+      if ("requested".equals(type) || grantedPermissions.contains(permission) == !"denied".equals(type)) {
+        permissions.add(permission);
+      }
+    }
+    return permissions;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void changePermissions(Map<String, Object> args) {
+    Object permissions = args.get("permissions");
+    List<String> changed = "all".equals(permissions) ? flow.getPermissions()
+            : permissions instanceof List ? (List<String>) permissions
+            : Collections.singletonList(String.valueOf(permissions));
+    if ("revoke".equals(args.get("action"))) {
+      grantedPermissions.removeAll(changed);
+    } else {
+      grantedPermissions.addAll(changed);
+    }
+  }
+
+  /**
+   * Types in the focused field. A field that is one of several sibling fields with the same
+   * resource-id, as the code fields, takes one character and moves the focus to the next one.
+   */
+  private void typeInFocusedElement(String text) {
+    latency.pause(FakeCommandLatency.SEND_KEYS);
+    if (text == null) {
+      throw FakeWebDriverError.invalidArgument("The text to type is missing");
+    }
+    if (focusedElement == null) {
+      throw FakeWebDriverError.invalidArgument("There is no focused element to type in");
+    }
+    List<Element> group = evaluate(focusedElement, "../" + EDIT_TEXT + "[@resource-id='"
+            + focusedElement.getAttribute("resource-id") + "']");
+    if (group.size() < 2) {
+      setText(focusedElement, focusedElement.getAttribute("text") + text);
+      return;
+    }
+    int position = group.indexOf(focusedElement);
+    for (int i = 0; i < text.length() && position < group.size(); i++, position++) {
+      setText(group.get(position), group.get(position).getAttribute("text") + text.charAt(i));
+      focusedElement = group.get(position);
+    }
+  }
+
+  private void launchApp() {
+    appRunning = true;
+    keyboardShown = false;
+    showScreen(flow.getStartScreen());
+  }
+
+  private void showScreen(String name) {
+    screenName = name;
+    screen = flow.newScreen(name);
+    screenshot = null;
+    focusedElement = null;
+    listOffset = 0;
+    elements.clear();
+    elementIds.clear();
+  }
+
+  private void click(Element element) {
+    latency.pause(FakeCommandLatency.CLICK);
+    for (Map.Entry<String, String> transition : flow.getTransitions(screenName).entrySet()) {
+      List<Element> targets = evaluate(screen, transition.getKey());
+      for (Node node = element; node instanceof Element; node = node.getParentNode()) {
+        if (targets.contains(node)) {
+          showScreen(transition.getValue());
+          return;
+        }
+      }
+    }
+    if (EDIT_TEXT.equals(element.getAttribute("class"))) {
+      keyboardShown = true;
+      focusedElement = element;
+    }
+  }
+
+  private void sendKeys(Element element, Map<String, Object> body) {
+    latency.pause(FakeCommandLatency.SEND_KEYS);
+    setText(element, element.getAttribute("text") + getText(body));
+    keyboardShown = true;
+    focusedElement = element;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static String getText(Map<String, Object> body) {
+    String text = body.get("text") instanceof String ? (String) body.get("text") : null;
+    if (text == null && body.get("value") instanceof String) {
+      text = (String) body.get("value");
+    } else if (text == null && body.get("value") instanceof List) {
+      text = String.join("", (List<String>) body.get("value"));
+    }
+    if (text == null) {
+      throw FakeWebDriverError.invalidArgument("The text to send is missing");
+    }
+    return text;
+  }
+
+  private void setText(Element element, String text) {
+    element.setAttribute("text", text);
+    screenshot = null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void touchPerform(Map<String, Object> body) {
+    List<Map<String, Object>> actions = (List<Map<String, Object>>) body.get("actions");
+    if (actions == null || actions.isEmpty()) {
+      return;
+    }
+    Map<String, Object> tap = null;
+    for (Map<String, Object> action : actions) {
+      String name = String.valueOf(action.get("action"));
+      if ("moveTo".equals(name)) {
+        // a swipe: all the nodes of the recorded screens are already on the screen
+        return;
+      }
+      if ("press".equals(name) || "tap".equals(name)) {
+        tap = (Map<String, Object>) action.get("options");
+      }
+    }
+    if (tap == null) {
+      return;
+    }
+    Element target;
+    if (tap.get("element") != null) {
+      target = getElement(String.valueOf(tap.get("element")));
+    } else {
+      target = findDeepestNodeAt(screen.getDocumentElement(), ((Number) tap.get("x")).intValue(),
+              ((Number) tap.get("y")).intValue());
+    }
+    if (target != null) {
+      click(target);
+    }
+  }
+
+  private Element findDeepestNodeAt(Element parent, int x, int y) {
+    NodeList children = parent.getChildNodes();
+    for (int i = children.getLength() - 1; i >= 0; i--) {
+      Element child = (Element) children.item(i);
+      if (!"false".equals(child.getAttribute("displayed"))
+              && FakeScreenRenderer.getBounds(child).contains(x, y)) {
+        Element deepest = findDeepestNodeAt(child, x, y);
+        return deepest == null ? child : deepest;
+      }
+    }
+    return null;
+  }
+
+  private String getAttribute(Element element, String name) {
+    switch (name) {
+      case "resourceId":
+        return element.getAttribute("resource-id");
+      case "contentDescription":
+      case "content-desc":
+        return element.getAttribute("content-desc");
+      case "className":
+        return element.getAttribute("class");
+      default:
+        return element.hasAttribute(name) ? element.getAttribute(name) : null;
+    }
+  }
+
+  private Element findElement(Element context, Map<String, Object> body) {
+    List<Element> found = findElements(context, body);
+    if (found.isEmpty()) {
+      throw FakeWebDriverError.noSuchElement("No element found using " + body.get("using") + " ["
+              + body.get("value") + "] on the screen " + screenName);
+    }
+    return found.get(0);
+  }
+
+  private List<Element> findElements(Element context, Map<String, Object> body) {
+    latency.pause(FakeCommandLatency.FIND);
+    String using = String.valueOf(body.get("using"));
+    String value = String.valueOf(body.get("value"));
+    switch (using) {
+      case "xpath":
+        return evaluate(context == null ? screen : context, value);
+      case "id":
+        return findDescendants(context, node -> matchesId(node, value));
+      case "css selector":
+        if (!value.startsWith("#")) {
+          throw FakeWebDriverError.invalidSelector("Only the #id CSS selectors are supported: " + value);
+        }
+        String cssId = value.substring(1).replaceAll("\\\\(.)", "$1");
+        return findDescendants(context, node -> matchesId(node, cssId));
+      case "class name":
+        return findDescendants(context, node -> value.equals(node.getAttribute("class")));
+      case "accessibility id":
+        return findDescendants(context, node -> value.equals(node.getAttribute("content-desc")));
+      case "-android uiautomator":
+        if (value.contains(SCROLL_INTO_VIEW)) {
+          scrollIntoView(context, value);
+        }
+        return findByUiSelector(context, value);
+      default:
+        throw FakeWebDriverError.invalidSelector("The locator strategy [" + using + "] is not supported");
+    }
+  }
+
+  private boolean matchesId(Element node, String resourceId) {
+    String nodeId = node.getAttribute("resource-id");
+    return nodeId.equals(resourceId)
+            || !resourceId.contains(":id/") && nodeId.equals(flow.getAppPackage() + ":id/" + resourceId);
+  }
+
+  /**
+   * Swipes the scrollable list of the screen as UiScrollable.scrollIntoView does: back to the
+   * beginning of the list, then forward until the searched row shows or the maximum number of
+   * swipes is reached. The row nodes of the list show the window of the rows of the screen.
+   */
+  private void scrollIntoView(Element context, String selector) {
+    List<String> rows = flow.getListRows(screenName);
+    List<Element> rowNodes = findScrollableRows();
+    if (rows.isEmpty() || rowNodes.isEmpty() || !findByUiSelector(context, selector).isEmpty()) {
+      return;
+    }
+    Matcher matcher = MAX_SEARCH_SWIPES.matcher(selector);
+    int maxSwipes = matcher.find() ? Integer.parseInt(matcher.group(1)) : DEFAULT_MAX_SEARCH_SWIPES;
+    int swipeRows = Math.max(1, (int) (rowNodes.size() * SWIPE_RATIO));
+    int lastOffset = Math.max(0, rows.size() - rowNodes.size());
+
+    for (int swipe = 0; swipe < maxSwipes && listOffset > 0; swipe++) {
+      showRows(rows, rowNodes, Math.max(0, listOffset - swipeRows));
+    }
+    for (int swipe = 0; swipe < maxSwipes && findByUiSelector(context, selector).isEmpty()
+            && listOffset < lastOffset; swipe++) {
+      showRows(rows, rowNodes, Math.min(lastOffset, listOffset + swipeRows));
+    }
+  }
+
+  private List<Element> findScrollableRows() {
+    List<Element> lists = findDescendants(null, node -> "true".equals(node.getAttribute("scrollable")));
+    List<Element> rowNodes = new ArrayList<>();
+    if (!lists.isEmpty()) {
+      NodeList children = lists.get(0).getChildNodes();
+      for (int i = 0; i < children.getLength(); i++) {
+        rowNodes.add((Element) children.item(i));
+      }
+    }
+    return rowNodes;
+  }
+
+  private void showRows(List<String> rows, List<Element> rowNodes, int offset) {
+    listOffset = offset;
+    for (int i = 0; i < rowNodes.size(); i++) {
+      setText(rowNodes.get(i), offset + i < rows.size() ? rows.get(offset + i) : "");
+    }
+  }
+
+  /**
+   * Runs the last UiSelector of a -android uiautomator locator, so a UiScrollable locator finds the
+   * element it scrolls to.
+   */
+  private List<Element> findByUiSelector(Element context, String selector) {
+    int start = selector.lastIndexOf(UI_SELECTOR);
+    if (start < 0) {
+      throw FakeWebDriverError.invalidSelector("No UiSelector in [" + selector + "]");
+    }
+    Predicate<Element> predicate = node -> true;
+    int instance = -1;
+    Matcher matcher = UI_SELECTOR_METHOD.matcher(selector.substring(start + UI_SELECTOR.length()));
+    while (matcher.find()) {
+      String method = matcher.group(1);
+      String value = matcher.group(2) != null ? matcher.group(2).replaceAll("\\\\(.)", "$1") : matcher.group(3);
+      if ("instance".equals(method)) {
+        instance = Integer.parseInt(value);
+      } else {
+        predicate = predicate.and(toUiSelectorPredicate(method, value));
+      }
+    }
+    List<Element> found = findDescendants(context, predicate);
+    if (instance < 0) {
+      return found;
+    }
+    return instance < found.size()
+            ? Collections.singletonList(found.get(instance)) : Collections.emptyList();
+  }
+
+  private static Predicate<Element> toUiSelectorPredicate(String method, String value) {
+    switch (method) {
+      case "className":
+        return node -> value.equals(node.getAttribute("class"));
+      case "resourceId":
+        return node -> value.equals(node.getAttribute("resource-id"));
+      case "resourceIdMatches":
+        return node -> node.getAttribute("resource-id").matches(value);
+      case "text":
+        return node -> value.equals(node.getAttribute("text"));
+      case "textContains":
+        return node -> node.getAttribute("text").contains(value);
+      case "textStartsWith":
+        return node -> node.getAttribute("text").startsWith(value);
+      case "textMatches":
+        return node -> node.getAttribute("text").matches(value);
+      case "description":
+        return node -> value.equals(node.getAttribute("content-desc"));
+      case "descriptionContains":
+        return node -> node.getAttribute("content-desc").contains(value);
+      case "index":
+        return node -> value.equals(node.getAttribute("index"));
+      case "clickable":
+      case "scrollable":
+      case "enabled":
+      case "checked":
+      case "selected":
+      case "focused":
+        return node -> value.equals(node.getAttribute(method));
+      default:
+        throw FakeWebDriverError.invalidSelector("The UiSelector method [" + method + "] is not supported");
+    }
+  }
+
+  private List<Element> findDescendants(Element context, Predicate<Element> predicate) {
+    List<Element> found = new ArrayList<>();
+    collect(context == null ? screen.getDocumentElement() : context, predicate, found);
+    return found;
+  }
+
+  private static void collect(Element parent, Predicate<Element> predicate, List<Element> found) {
+    NodeList children = parent.getChildNodes();
+    for (int i = 0; i < children.getLength(); i++) {
+      Element child = (Element) children.item(i);
+      if (predicate.test(child)) {
+        found.add(child);
+      }
+      collect(child, predicate, found);
+    }
+  }
+
+  private List<Element> evaluate(Node context, String expression) {
+    try {
+      NodeList nodes = (NodeList) xpath.evaluate(expression, context, XPathConstants.NODESET);
+      List<Element> found = new ArrayList<>(nodes.getLength());
+      for (int i = 0; i < nodes.getLength(); i++) {
+        if (nodes.item(i) instanceof Element && nodes.item(i) != screen.getDocumentElement()) {
+          found.add((Element) nodes.item(i));
+        }
+      }
+      return found;
+    } catch (XPathExpressionException e) {
+      throw FakeWebDriverError.invalidSelector("Invalid XPath [" + expression + "]: " + e.getMessage());
+    }
+  }
+
+  private Element getElement(String elementId) {
+    Element element = elements.get(elementId);
+    if (element == null) {
+      throw FakeWebDriverError.staleElement(elementId);
+    }
+    return element;
+  }
+
+  private Map<String, String> toReference(Element element) {
+    String elementId = elementIds.get(element);
+    if (elementId == null) {
+      elementId = id + "-" + ++lastElementId;
+      elementIds.put(element, elementId);
+      elements.put(elementId, element);
+    }
+    Map<String, String> reference = new LinkedHashMap<>();
+    reference.put(ELEMENT_KEY, elementId);
+    reference.put(LEGACY_ELEMENT_KEY, elementId);
+    return reference;
+  }
+
+  private List<Map<String, String>> toReferences(List<Element> found) {
+    List<Map<String, String>> references = new ArrayList<>(found.size());
+    for (Element element : found) {
+      references.add(toReference(element));
+    }
+    return references;
+  }
+
+  private byte[] getScreenshot() {
+    if (screenshot == null) {
+      screenshot = FakeScreenRenderer.render(screen.getDocumentElement());
+    }
+    return screenshot;
+  }
+
+  private String getPageSource() {
+    try {
+      Transformer transformer = TransformerFactory.newInstance().newTransformer();
+      transformer.setOutputProperty(OutputKeys.STANDALONE, "yes");
+      StringWriter writer = new StringWriter();
+      transformer.transform(new DOMSource(screen), new StreamResult(writer));
+      return writer.toString();
+    } catch (TransformerException e) {
+      throw new IllegalStateException("Unable to write the page source of the screen " + screenName, e);
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package appiumdriver.fake;
+
+/**
+ * WebDriver error answered by the {@link FakeAppiumServer}, with the HTTP status and the W3C
+ * error code the client maps back to a Selenium exception.
+ */
+final class FakeWebDriverError extends RuntimeException {
+
+  private final int httpStatus;
+  private final String error;
+
+  FakeWebDriverError(int httpStatus, String error, String message) {
+    super(message);
+    this.httpStatus = httpStatus;
+    this.error = error;
+  }
+
+  static FakeWebDriverError noSuchElement(String message) {
+    return new FakeWebDriverError(404, "no such element", message);
+  }
+
+  static FakeWebDriverError staleElement(String elementId) {
+    return new FakeWebDriverError(404, "stale element reference",
+            "The element " + elementId + " is not on the current screen");
+  }
+
+  static FakeWebDriverError invalidSession(String sessionId) {
+    return new FakeWebDriverError(404, "invalid session id", "The session " + sessionId + " does not exist");
+  }
+
+  static FakeWebDriverError unknownCommand(String method, String path) {
+    return new FakeWebDriverError(404, "unknown command", method + " " + path + " is not supported");
+  }
+
+  static FakeWebDriverError invalidSelector(String message) {
+    return new FakeWebDriverError(400, "invalid selector", message);
+  }
+
+  static FakeWebDriverError invalidArgument(String message) {
+    return new FakeWebDriverError(400, "invalid argument", message);
+  }
+
+  static FakeWebDriverError sessionNotCreated(String message) {
+    return new FakeWebDriverError(500, "session not created", message);
+  }
+
+  static FakeWebDriverError unknownError(String message) {
+    return new FakeWebDriverError(500, "unknown error", message);
+  }
+
+  int getHttpStatus() {
+    return httpStatus;
+  }
+
+  String getError() {
+    return error;
+  }
+}
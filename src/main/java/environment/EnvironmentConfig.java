@@ -38,6 +38,19 @@ public final class EnvironmentConfig {
     configMap = loadConfigFile(environmentConfig);
   }
 
+  /**
+   * Gets a setting of the loaded configuration file.
+   *
+   * @param key the name of the setting
+   * @return the value of the setting, or null when it is not defined
+   */
+  public static Object getSetting(String key) {
+    if (configMap == null) {
+      return null;
+    }
+    return configMap.get(key);
+  }
+
   /**
    * Loads the settings from the specified configuration file.
    *
@@ -7,9 +7,9 @@ import io.appium.java_client.pagefactory.HowToUseLocators;
 import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.support.PageFactory;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import pageobjects.android.widgets.AndroidSideMenu;
 import pageobjects.base.AbstractScreen;
+import pageobjects.base.CompiledSearchContext;
 import utils.TestReporter;
 
 import static io.appium.java_client.pagefactory.LocatorGroupStrategy.ALL_POSSIBLE;
@@ -40,7 +40,7 @@ public class AndroidHomeRidesScreen extends AbstractScreen {
   public AndroidHomeRidesScreen() {
     super();
     TestReporter.addInfoToReport("Initilizing home rides Screen screen");
-    PageFactory.initElements(new AppiumFieldDecorator(driver), this);
+    PageFactory.initElements(new AppiumFieldDecorator(new CompiledSearchContext(driver)), this);
     isLoaded(getContentScreenContainer);
   }
 
@@ -49,8 +49,7 @@ public class AndroidHomeRidesScreen extends AbstractScreen {
    */
   public AndroidSideMenu openSideMenu() {
     TestReporter.addInfoToReport("Clicks on continue button");
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.visibilityOf(sideMenuButton));
+    waitUntil(ExpectedConditions.visibilityOf(sideMenuButton), WAIT_TIMEOUT);
     sideMenuButton.click();
     AndroidSideMenu androidSideMenu = new AndroidSideMenu(sideMenuContainer);
     return androidSideMenu;
@@ -64,8 +63,7 @@ public class AndroidHomeRidesScreen extends AbstractScreen {
   public boolean isRidesTitleDisplayed() {
     TestReporter.addInfoToReport("Check if the rides title is present in the home page");
     try {
-      WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-      wait.until(ExpectedConditions.visibilityOf(rideTitle));
+      waitUntil(ExpectedConditions.visibilityOf(rideTitle), WAIT_TIMEOUT);
       return rideTitle.isDisplayed();
     } catch (NoSuchElementException e) {
       logger.debug("The home page does not have the rides title", e);
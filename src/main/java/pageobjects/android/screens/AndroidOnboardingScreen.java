@@ -1,14 +1,15 @@
 package pageobjects.android.screens;
 
+import io.appium.java_client.AppiumDriver;
 import io.appium.java_client.MobileElement;
 import io.appium.java_client.pagefactory.AndroidFindBy;
 import io.appium.java_client.pagefactory.AppiumFieldDecorator;
 import io.appium.java_client.pagefactory.HowToUseLocators;
 import org.openqa.selenium.support.PageFactory;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import pageobjects.android.widgets.AndroidPhoneNumberWidget;
 import pageobjects.base.AbstractScreen;
+import pageobjects.base.CompiledSearchContext;
 
 import static io.appium.java_client.pagefactory.LocatorGroupStrategy.ALL_POSSIBLE;
 
@@ -34,17 +35,26 @@ public class AndroidOnboardingScreen extends AbstractScreen {
   public AndroidOnboardingScreen() {
     super();
     logger.debug("Initilizing onboarding screen");
-    PageFactory.initElements(new AppiumFieldDecorator(driver), this);
+    PageFactory.initElements(new AppiumFieldDecorator(new CompiledSearchContext(driver)), this);
     isLoaded(getStartedScreenContainer);
   }
 
+  /**
+   * Builds the screen on a driver without initializing its elements nor waiting for it, for the
+   * page factory benchmark.
+   *
+   * @param driver the driver of the session
+   */
+  AndroidOnboardingScreen(AppiumDriver<MobileElement> driver) {
+    super(driver);
+  }
+
   /***
    * <p>Clicks the get started button.</p>
    */
   public AndroidPhoneNumberWidget getStarted() {
     logger.debug("Get started to onboarding");
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.visibilityOf(getStartedButton));
+    waitUntil(ExpectedConditions.visibilityOf(getStartedButton), WAIT_TIMEOUT);
     logger.debug("Click the get started button");
     getStartedButton.click();
     AndroidPhoneNumberWidget androidPhoneNumberWidget = new AndroidPhoneNumberWidget(phoneNumberWidget);
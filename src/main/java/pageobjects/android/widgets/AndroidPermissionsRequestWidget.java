@@ -1,57 +1,65 @@
 package pageobjects.android.widgets;
 
+import appiumdriver.AppiumDriverBase;
+import appiumdriver.AppiumDriverFactory;
+import appiumdriver.PermissionsMode;
+import com.google.common.collect.ImmutableMap;
+import io.appium.java_client.AppiumDriver;
 import io.appium.java_client.MobileElement;
 import io.appium.java_client.pagefactory.AndroidFindBy;
 import io.appium.java_client.pagefactory.AppiumFieldDecorator;
 import io.appium.java_client.pagefactory.HowToUseLocators;
-import org.openqa.selenium.By;
+import java.util.Collection;
+import java.util.Collections;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.support.PageFactory;
-import org.openqa.selenium.support.pagefactory.ByAll;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import pageobjects.android.screens.AndroidHomeRidesScreen;
 import pageobjects.base.AbstractWidget;
+import pageobjects.base.CompiledSearchContext;
+import pageobjects.base.ElementState;
 import utils.TestReporter;
 
 import static io.appium.java_client.pagefactory.LocatorGroupStrategy.ALL_POSSIBLE;
 
 public class AndroidPermissionsRequestWidget extends AbstractWidget {
 
+  private static final String CONTINUE_BUTTON_XPATH =
+          "//android.widget.Button[@resource-id='com.hdw.james.rider:id/permissionsContinueButton']";
+  private static final String ALLOW_LOCATION_BUTTON_XPATH =
+          "//android.widget.Button[@resource-id='com.hdw.james.rider:id/permissionsLocationButton']";
+  private static final String ALLOW_NOTIFICATIONS_BUTTON_XPATH =
+          "//android.widget.Button[@resource-id='com.hdw.james.rider:id/permissionsNotificationButton']";
+  private static final String ALLOW_WHILE_USING_THE_APP_BUTTON_XPATH = "//android.widget.Button"
+          + "[@resource-id='com.android.permissioncontroller:id/permission_allow_foreground_only_button']";
+  private static final String ALLOW_SEND_NOTIFICATIONS_BUTTON_XPATH = "//android.widget.Button"
+          + "[@resource-id='com.android.permissioncontroller:id/permission_allow_button']";
+  private static final String LOCATION_PERMISSION = "android.permission.ACCESS_FINE_LOCATION";
+  private static final String NOTIFICATIONS_PERMISSION = "android.permission.POST_NOTIFICATIONS";
+
   @HowToUseLocators(androidAutomation = ALL_POSSIBLE)
   @AndroidFindBy(xpath = "//android.widget.TextView[@resource-id='com.hdw.james.rider:id/permissionsTextTitle']")
   private MobileElement permissionRequestTitle;
 
   @HowToUseLocators(androidAutomation = ALL_POSSIBLE)
-  @AndroidFindBy(xpath = "//android.widget.Button[@resource-id='com.hdw.james.rider:id/permissionsContinueButton']")
+  @AndroidFindBy(xpath = CONTINUE_BUTTON_XPATH)
   private MobileElement continueButton;
 
   @HowToUseLocators(androidAutomation = ALL_POSSIBLE)
-  @AndroidFindBy(xpath = "//android.widget.Button[@resource-id='com.hdw.james.rider:id/permissionsLocationButton']")
+  @AndroidFindBy(xpath = ALLOW_LOCATION_BUTTON_XPATH)
   private MobileElement allowLocationButton;
 
   @HowToUseLocators(androidAutomation = ALL_POSSIBLE)
-  @AndroidFindBy(xpath = "//android.widget.Button[@resource-id='com.hdw.james.rider:id/permissionsNotificationButton']")
+  @AndroidFindBy(xpath = ALLOW_NOTIFICATIONS_BUTTON_XPATH)
   private MobileElement allowNotificationsButton;
 
   @HowToUseLocators(androidAutomation = ALL_POSSIBLE)
-  @AndroidFindBy(xpath = "//android.widget.Button"
-          + "[@resource-id='com.android.permissioncontroller:id/permission_allow_foreground_only_button']")
+  @AndroidFindBy(xpath = ALLOW_WHILE_USING_THE_APP_BUTTON_XPATH)
   private MobileElement allowWhileUsingTheAppButton;
 
   @HowToUseLocators(androidAutomation = ALL_POSSIBLE)
-  @AndroidFindBy(xpath = "//android.widget.Button"
-          + "[@resource-id='com.android.permissioncontroller:id/permission_allow_button']")
+  @AndroidFindBy(xpath = ALLOW_SEND_NOTIFICATIONS_BUTTON_XPATH)
   private MobileElement allowSendNotificationsButton;
 
-  @HowToUseLocators(androidAutomation = ALL_POSSIBLE)
-  @AndroidFindBy(xpath = "//android.widget.LinearLayout"
-          + "[@resource-id='com.android.permissioncontroller:id/grant_dialog']")
-  private MobileElement allowPopUpContainer;
-
-  private static final By allowPopUpContainerBy = new ByAll(
-          By.xpath("//android.widget.LinearLayout"
-                  + "[@resource-id='com.android.permissioncontroller:id/grant_dialog']"));
-
 
   /**
    * Initializes the permissions request widget with the container.
@@ -60,39 +68,68 @@ public class AndroidPermissionsRequestWidget extends AbstractWidget {
    */
   public AndroidPermissionsRequestWidget(MobileElement container) {
     super(container);
-    PageFactory.initElements(new AppiumFieldDecorator(container), this);
+    PageFactory.initElements(new AppiumFieldDecorator(new CompiledSearchContext(container)), this);
     logger.debug("Initialising the PermissionsRequest widget");
     driver.hideKeyboard();
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.visibilityOf(continueButton));
+    waitForAll(ElementState.VISIBLE, WAIT_TIMEOUT, CONTINUE_BUTTON_XPATH, ALLOW_LOCATION_BUTTON_XPATH,
+            ALLOW_NOTIFICATIONS_BUTTON_XPATH);
+    recordLoadTime();
     TestReporter.addScreenshotToReport("Android permissions request widget is loaded successfully");
   }
 
+  /**
+   * Builds the widget on a driver without initializing its elements nor waiting for it, for the
+   * page factory benchmark.
+   *
+   * @param container the element that contains the widget
+   * @param driver the driver of the session
+   */
+  AndroidPermissionsRequestWidget(MobileElement container, AppiumDriver<MobileElement> driver) {
+    super(container, driver);
+  }
+
   /**
    * Clicks on continue button.
    */
   public AndroidHomeRidesScreen allowAndContinueToHomeRidesScreen() {
     logger.debug("Clicks on continue button");
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.visibilityOf(continueButton));
     allowPermissionsRequests();
     continueButton.click();
     AndroidHomeRidesScreen androidHomeRidesScreen = new AndroidHomeRidesScreen();
     return androidHomeRidesScreen;
   }
 
+  /**
+   * Clicks on continue button, going through the permission dialogs only for the permissions that
+   * are not granted yet. When the permissions were granted when the session was set up, it goes
+   * straight to the home rides screen.
+   */
+  public AndroidHomeRidesScreen continueToHomeRidesScreen() {
+    logger.debug("Clicks on continue button");
+    Collection<String> grantedPermissions = getGrantedPermissions();
+    if (grantedPermissions.contains(LOCATION_PERMISSION)) {
+      logger.debug("The location permission is already granted");
+    } else {
+      allowLocation();
+    }
+    if (grantedPermissions.contains(NOTIFICATIONS_PERMISSION)) {
+      logger.debug("The notifications permission is already granted");
+    } else {
+      allowNotifications();
+    }
+    continueButton.click();
+    AndroidHomeRidesScreen androidHomeRidesScreen = new AndroidHomeRidesScreen();
+    return androidHomeRidesScreen;
+  }
+
   /**
    * Clicks on allow location button.
    */
   public AndroidPermissionsRequestWidget allowLocation() {
     logger.debug("Clicks on allow location button");
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.visibilityOf(allowLocationButton)).click();
-    wait.until(ExpectedConditions.presenceOfAllElementsLocatedBy(allowPopUpContainerBy));
-    if (allowPopUpContainer.isDisplayed()) {
-      wait.until(ExpectedConditions.elementToBeClickable(allowWhileUsingTheAppButton));
-      allowWhileUsingTheAppButton.click();
-    }
+    waitForAll(ElementState.VISIBLE, WAIT_TIMEOUT, ALLOW_LOCATION_BUTTON_XPATH);
+    allowLocationButton.click();
+    allowPopUp(ALLOW_WHILE_USING_THE_APP_BUTTON_XPATH, allowWhileUsingTheAppButton);
     return this;
   }
 
@@ -101,13 +138,9 @@ public class AndroidPermissionsRequestWidget extends AbstractWidget {
    */
   public AndroidPermissionsRequestWidget allowNotifications() {
     logger.debug("Clicks on allow notifications button");
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.visibilityOf(allowNotificationsButton)).click();
-    wait.until(ExpectedConditions.presenceOfElementLocated(allowPopUpContainerBy));
-    if (allowPopUpContainer.isDisplayed()) {
-      wait.until(ExpectedConditions.elementToBeClickable(allowSendNotificationsButton));
-      allowSendNotificationsButton.click();
-    }
+    waitForAll(ElementState.VISIBLE, WAIT_TIMEOUT, ALLOW_NOTIFICATIONS_BUTTON_XPATH);
+    allowNotificationsButton.click();
+    allowPopUp(ALLOW_SEND_NOTIFICATIONS_BUTTON_XPATH, allowSendNotificationsButton);
     return this;
   }
 
@@ -120,4 +153,32 @@ public class AndroidPermissionsRequestWidget extends AbstractWidget {
     allowNotifications();
     return this;
   }
+
+  /**
+   * Gets the runtime permissions granted to the app, when they are granted up front. With the
+   * permission dialogs the device is not asked, as nothing is granted before the dialogs.
+   */
+  @SuppressWarnings("unchecked")
+  private Collection<String> getGrantedPermissions() {
+    if (AppiumDriverBase.getPermissionsMode() != PermissionsMode.GRANTED) {
+      return Collections.emptyList();
+    }
+    try {
+      Object permissions = driver.executeScript("mobile: getPermissions", ImmutableMap.of("type", "granted",
+              "appPackage", AppiumDriverFactory.APP_PACKAGE));
+      return permissions instanceof Collection ? (Collection<String>) permissions : Collections.emptyList();
+    } catch (WebDriverException e) {
+      logger.warn("Unable to get the granted permissions, going through the permission dialogs", e);
+      return Collections.emptyList();
+    }
+  }
+
+  /**
+   * Waits for the allow button of the permission pop up to be displayed and enabled, as the pop up
+   * animation may show it disabled first, then clicks it.
+   */
+  private void allowPopUp(String allowButtonXpath, MobileElement allowButton) {
+    waitForAll(ElementState.CLICKABLE, WAIT_TIMEOUT, allowButtonXpath);
+    allowButton.click();
+  }
 }
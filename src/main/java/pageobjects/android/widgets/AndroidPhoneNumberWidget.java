@@ -1,7 +1,8 @@
 package pageobjects.android.widgets;
 
-import appiumdriver.AppiumDriverBase;
 import com.neovisionaries.i18n.CountryCode;
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.MobileBy;
 import io.appium.java_client.MobileElement;
 import io.appium.java_client.pagefactory.AndroidFindBy;
 import io.appium.java_client.pagefactory.AppiumFieldDecorator;
@@ -10,14 +11,14 @@ import java.util.List;
 import io.appium.java_client.pagefactory.HowToUseLocators;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.openqa.selenium.By;
 import org.openqa.selenium.NoSuchElementException;
-import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.PageFactory;
-import org.openqa.selenium.support.pagefactory.ByAll;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import pageobjects.base.AbstractWidget;
+import pageobjects.base.CompiledSearchContext;
+import pageobjects.base.ListReader;
+import pageobjects.base.PageSourceSnapshot;
+import pageobjects.base.SnapshotElement;
 import utils.TestReporter;
 
 import static io.appium.java_client.pagefactory.LocatorGroupStrategy.ALL_POSSIBLE;
@@ -26,6 +27,11 @@ public class AndroidPhoneNumberWidget extends AbstractWidget {
 
   protected static final Logger logger = LogManager.getLogger(AndroidPhoneNumberWidget.class);
 
+  private static final String TITLE_XPATH =
+          "//android.widget.TextView[@resource-id='com.hdw.james.rider:id/title']";
+  private static final String DESCRIPTION_XPATH =
+          "//android.widget.TextView[@resource-id='com.hdw.james.rider:id/description']";
+
   //selectors
   @HowToUseLocators(androidAutomation = ALL_POSSIBLE)
   @AndroidFindBy(xpath = "//android.widget.EditText[@resource-id='com.hdw.james.rider:id/input']")
@@ -39,26 +45,29 @@ public class AndroidPhoneNumberWidget extends AbstractWidget {
   @AndroidFindBy(xpath = "//*[@resource-id='com.hdw.james.rider:id/continueButton']")
   private MobileElement continueButton;
 
-  @HowToUseLocators(androidAutomation = ALL_POSSIBLE)
-  @AndroidFindBy(xpath = "//android.widget.TextView[@resource-id='com.hdw.james.rider:id/title']")
-  private MobileElement title;
-
-  @HowToUseLocators(androidAutomation = ALL_POSSIBLE)
-  @AndroidFindBy(xpath = "//android.widget.TextView[@resource-id='com.hdw.james.rider:id/description']")
-  private MobileElement description;
-
   @HowToUseLocators(androidAutomation = ALL_POSSIBLE)
   @AndroidFindBy(xpath = "//android.widget.FrameLayout[@resource-id='android:id/content']")
   private MobileElement validateCodeNumberContainer;
 
-  @HowToUseLocators(androidAutomation = ALL_POSSIBLE)
-  @AndroidFindBy(xpath = "//android.widget.ListView")
-  private MobileElement dropdownContainer;
+  private static final String COUNTRY_ITEM_ID = "com.hdw.james.rider:id/text";
+  private static final String COUNTRY_LIST_XPATH = "//android.widget.ListView";
+  private static final String COUNTRY_ROW_PATH = "//*[@resource-id='" + COUNTRY_ITEM_ID + "']";
 
-  private static final By dropdownContainerBy = new ByAll(
-          By.xpath("//android.widget.ListView"));
-  private static final By dropDownItemsBy = new ByAll(
-          By.xpath("//*[@resource-id='com.hdw.james.rider:id/text']"));
+  /**
+   * Swipes of a UiScrollable search when none is set, kept as the lower bound of the search.
+   */
+  private static final int MIN_SEARCH_SWIPES = 30;
+
+  /**
+   * Part of the visible rows moved by a UiScrollable swipe.
+   */
+  private static final double SWIPE_RATIO = 0.8;
+
+  /**
+   * Margin on the estimated number of swipes, as the app list does not exactly follow the
+   * CountryCode names and may not open at its top.
+   */
+  private static final double SWIPE_MARGIN = 1.5;
 
   private static final int WAIT_TIMEOUT = 5;
 
@@ -70,46 +79,58 @@ public class AndroidPhoneNumberWidget extends AbstractWidget {
    */
   public AndroidPhoneNumberWidget(MobileElement container) {
     super(container);
-    PageFactory.initElements(new AppiumFieldDecorator(container), this);
+    PageFactory.initElements(new AppiumFieldDecorator(new CompiledSearchContext(container)), this);
     TestReporter.addInfoToReport("Initialising the AndroidPhoneNumber widget");
     driver.hideKeyboard();
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.visibilityOf(phoneNumberField));
+    waitUntil(ExpectedConditions.visibilityOf(phoneNumberField), WAIT_TIMEOUT);
+    recordLoadTime();
     TestReporter.addScreenshotToReport("Android phone number widget is loaded successfully");
   }
 
   /**
-   * Sets country code.
+   * Builds the widget on a driver without initializing its elements nor waiting for it, for the
+   * page factory benchmark.
+   *
+   * @param container the element that contains the widget
+   * @param driver the driver of the session
+   */
+  AndroidPhoneNumberWidget(MobileElement container, AppiumDriver<MobileElement> driver) {
+    super(container, driver);
+  }
+
+  /**
+   * Sets country code. The texts of the visible countries are read from one page source; when the
+   * country is not visible, the device scrolls the list to it with a UiScrollable, so the time does
+   * not depend on the position of the country in the list.
    *
    * @param countryCode CountryCode
+   * @param areaCode the area code shown next to the country name
    * @return AndroidPhoneNumberWidget
    */
   public AndroidPhoneNumberWidget setCountryCode(CountryCode countryCode, String areaCode) {
     TestReporter.addInfoToReport("Set country code on AndroidPhoneNumber component");
     countryCodeButton.click();
-    WebDriverWait wait = new WebDriverWait(AppiumDriverBase.getDriver(), WAIT_TIMEOUT);
-
-    boolean countryCodeFound = false;
-    int maxScrollAttempts = 24;  // Número máximo de intentos de desplazamiento
-    int currentScrollAttempt = 0;
-
-    while (!countryCodeFound && currentScrollAttempt < maxScrollAttempts) {
-      WebElement listContainer = wait.until(ExpectedConditions.presenceOfElementLocated(dropdownContainerBy));
-      List<WebElement> values = listContainer.findElements(dropDownItemsBy);
-
-      for (WebElement value : values) {
-        if (value.getText().contains(countryCode.getName() + " (" + areaCode + ")")) {
-          value.click();
-          countryCodeFound = true;
-          break;
-        }
-      }
-
-      if (!countryCodeFound) {
-        scrollUp();
-        currentScrollAttempt++;
+    String label = countryCode.getName() + " (" + areaCode + ")";
+
+    ListReader countryList = new ListReader(driver, COUNTRY_LIST_XPATH, COUNTRY_ROW_PATH);
+    List<SnapshotElement> visibleCountries = countryList.readRows(WAIT_TIMEOUT);
+    for (SnapshotElement country : visibleCountries) {
+      if (country.getAllText().contains(label) && country.getCenter() != null) {
+        logger.debug("Country {} is visible, tap it", label);
+        countryList.tap(country);
+        return this;
       }
     }
+
+    // the first and the last visible rows may be cut, so they are not counted in a swipe
+    double rowsPerSwipe = Math.max(1, (visibleCountries.size() - 2) * SWIPE_RATIO);
+    int maxSwipes = Math.max(MIN_SEARCH_SWIPES,
+            (int) Math.ceil(CountryListOrder.estimatePosition(countryCode) / rowsPerSwipe * SWIPE_MARGIN));
+    logger.debug("Country {} is not visible, scroll to it with at most {} swipes", label, maxSwipes);
+    driver.findElement(MobileBy.AndroidUIAutomator("new UiScrollable(new UiSelector().scrollable(true))"
+            + ".setMaxSearchSwipes(" + maxSwipes + ")"
+            + ".scrollIntoView(new UiSelector().resourceId(\"" + COUNTRY_ITEM_ID + "\")"
+            + ".textContains(\"" + label.replace("\"", "\\\"") + "\"))")).click();
     return this;
   }
 
@@ -120,8 +141,7 @@ public class AndroidPhoneNumberWidget extends AbstractWidget {
    */
   public AndroidPhoneNumberWidget setPhoneNumber(String phoneNumber) {
     TestReporter.addInfoToReport("Setting phone number as: " + phoneNumber);
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.visibilityOf(phoneNumberField));
+    waitUntil(ExpectedConditions.visibilityOf(phoneNumberField), WAIT_TIMEOUT);
     phoneNumberField.clear();
     phoneNumberField.sendKeys(phoneNumber);
     return this;
@@ -132,8 +152,7 @@ public class AndroidPhoneNumberWidget extends AbstractWidget {
    */
   public AndroidValidateCodeNumberWidget clickContinueButton() {
     TestReporter.addInfoToReport("Clicks on continue button");
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.elementToBeClickable(continueButton));
+    waitUntil(ExpectedConditions.elementToBeClickable(continueButton), WAIT_TIMEOUT);
     continueButton.click();
     AndroidValidateCodeNumberWidget androidValidateCodeNumberWidget =
             new AndroidValidateCodeNumberWidget(validateCodeNumberContainer);
@@ -141,20 +160,19 @@ public class AndroidPhoneNumberWidget extends AbstractWidget {
   }
 
   /**
-   * Verifies if the title is displayed.
+   * Verifies if the title is displayed. The title and the description are read from the same
+   * page source snapshot.
    *
    * @return true if the title is displayed, false otherwise.
    */
   public boolean isTitleDisplayed() {
     TestReporter.addInfoToReport("Checking if the title is displayed");
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    try {
-      wait.until(ExpectedConditions.visibilityOf(title));
-      return title.isDisplayed();
-    } catch (NoSuchElementException e) {
-      logger.debug("Title not displayed", e);
+    SnapshotElement title = PageSourceSnapshot.waitForElement(driver, TITLE_XPATH, WAIT_TIMEOUT);
+    if (title == null) {
+      logger.debug("Title not displayed");
       return false;
     }
+    return title.isDisplayed();
   }
 
   /**
@@ -164,9 +182,7 @@ public class AndroidPhoneNumberWidget extends AbstractWidget {
    */
   public String getTitleText() {
     TestReporter.addInfoToReport("Getting the text of the title");
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.visibilityOf(title));
-    String titleText = title.getText();
+    String titleText = getSnapshotElement(TITLE_XPATH).getText();
     TestReporter.addInfoToReport("Title text: " + titleText);
     return titleText;
   }
@@ -178,14 +194,12 @@ public class AndroidPhoneNumberWidget extends AbstractWidget {
    */
   public boolean isDescriptionDisplayed() {
     TestReporter.addInfoToReport("Checking if the description is displayed");
-    try {
-      WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-      wait.until(ExpectedConditions.visibilityOf(description));
-      return description.isDisplayed();
-    } catch (NoSuchElementException e) {
+    SnapshotElement description = PageSourceSnapshot.waitForElement(driver, DESCRIPTION_XPATH, WAIT_TIMEOUT);
+    if (description == null) {
       logger.debug("Description not displayed");
       return false;
     }
+    return description.isDisplayed();
   }
 
   /**
@@ -195,11 +209,17 @@ public class AndroidPhoneNumberWidget extends AbstractWidget {
    */
   public String getDescriptionText() {
     TestReporter.addInfoToReport("Getting the text of the description");
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.visibilityOf(description));
-    String descriptionText = description.getText();
-    logger.info("Description text: " + descriptionText);
+    String descriptionText = getSnapshotElement(DESCRIPTION_XPATH).getText();
+    logger.info("Description text: {}", descriptionText);
     return descriptionText;
   }
 
+  private SnapshotElement getSnapshotElement(String xpath) {
+    SnapshotElement element = PageSourceSnapshot.waitForElement(driver, xpath, WAIT_TIMEOUT);
+    if (element == null) {
+      throw new NoSuchElementException("The element " + xpath + " is not in the page source");
+    }
+    return element;
+  }
+
 }
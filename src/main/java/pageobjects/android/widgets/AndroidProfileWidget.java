@@ -7,24 +7,33 @@ import io.appium.java_client.pagefactory.HowToUseLocators;
 import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.support.PageFactory;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import pageobjects.base.AbstractWidget;
+import pageobjects.base.CompiledSearchContext;
+import pageobjects.base.ElementState;
+import pageobjects.base.TextInputEngine;
 import utils.TestReporter;
 
 import static io.appium.java_client.pagefactory.LocatorGroupStrategy.ALL_POSSIBLE;
 
 public class AndroidProfileWidget extends AbstractWidget {
 
+  private static final String PICTURE_XPATH =
+          "//android.widget.ImageView[@resource-id='com.hdw.james.rider:id/profileImageView']";
+  private static final String FIRST_NAME_FIELD_XPATH =
+          "//android.widget.EditText[@resource-id='com.hdw.james.rider:id/firstNameInput']";
+  private static final String LAST_NAME_FIELD_XPATH =
+          "//android.widget.EditText[@resource-id='com.hdw.james.rider:id/lastNameInput']";
+
   @HowToUseLocators(androidAutomation = ALL_POSSIBLE)
-  @AndroidFindBy(xpath = "//android.widget.ImageView[@resource-id='com.hdw.james.rider:id/profileImageView']")
+  @AndroidFindBy(xpath = PICTURE_XPATH)
   private MobileElement picture;
 
   @HowToUseLocators(androidAutomation = ALL_POSSIBLE)
-  @AndroidFindBy(xpath = "//android.widget.EditText[@resource-id='com.hdw.james.rider:id/firstNameInput']")
+  @AndroidFindBy(xpath = FIRST_NAME_FIELD_XPATH)
   private MobileElement firstNameField;
 
   @HowToUseLocators(androidAutomation = ALL_POSSIBLE)
-  @AndroidFindBy(xpath = "//android.widget.EditText[@resource-id='com.hdw.james.rider:id/lastNameInput']")
+  @AndroidFindBy(xpath = LAST_NAME_FIELD_XPATH)
   private MobileElement lastNameField;
 
   @HowToUseLocators(androidAutomation = ALL_POSSIBLE)
@@ -42,10 +51,10 @@ public class AndroidProfileWidget extends AbstractWidget {
    */
   public AndroidProfileWidget(MobileElement container) {
     super(container);
-    PageFactory.initElements(new AppiumFieldDecorator(container), this);
+    PageFactory.initElements(new AppiumFieldDecorator(new CompiledSearchContext(container)), this);
     TestReporter.addInfoToReport("Initialising the profile widget");
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.visibilityOf(picture));
+    waitForAll(ElementState.VISIBLE, WAIT_TIMEOUT, PICTURE_XPATH, FIRST_NAME_FIELD_XPATH, LAST_NAME_FIELD_XPATH);
+    recordLoadTime();
     TestReporter.addScreenshotToReport("Android profile widget is loaded successfully");
   }
 
@@ -56,9 +65,8 @@ public class AndroidProfileWidget extends AbstractWidget {
    */
   public boolean isPictureDisplayed() {
     TestReporter.addInfoToReport("Checking if the profile picture is displayed");
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
     try {
-      wait.until(ExpectedConditions.visibilityOf(picture));
+      waitUntil(ExpectedConditions.visibilityOf(picture), WAIT_TIMEOUT);
       return picture.isDisplayed();
     } catch (NoSuchElementException e) {
       logger.debug("Profile picture not displayed", e);
@@ -73,10 +81,8 @@ public class AndroidProfileWidget extends AbstractWidget {
    */
   public AndroidProfileWidget enterFirstName(String firstName) {
     TestReporter.addInfoToReport("Entering first name: " + firstName);
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.visibilityOf(firstNameField));
-    firstNameField.clear();
-    firstNameField.sendKeys(firstName);
+    waitForAll(ElementState.VISIBLE, WAIT_TIMEOUT, FIRST_NAME_FIELD_XPATH);
+    TextInputEngine.replaceText(driver, firstNameField, firstName);
     return this;
   }
 
@@ -87,10 +93,8 @@ public class AndroidProfileWidget extends AbstractWidget {
    */
   public AndroidProfileWidget enterLastName(String lastName) {
     TestReporter.addInfoToReport("Entering last name: " + lastName);
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.visibilityOf(lastNameField));
-    lastNameField.clear();
-    lastNameField.sendKeys(lastName);
+    waitForAll(ElementState.VISIBLE, WAIT_TIMEOUT, LAST_NAME_FIELD_XPATH);
+    TextInputEngine.replaceText(driver, lastNameField, lastName);
     return this;
   }
 
@@ -99,8 +103,7 @@ public class AndroidProfileWidget extends AbstractWidget {
    */
   public AndroidSideMenu clickDoneButton() {
     TestReporter.addInfoToReport("Clicking the done button");
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.elementToBeClickable(doneButton));
+    waitUntil(ExpectedConditions.elementToBeClickable(doneButton), WAIT_TIMEOUT);
     doneButton.click();
     logger.info("Done button clicked");
     AndroidSideMenu androidSideMenu = new AndroidSideMenu(sideMenuContainer);
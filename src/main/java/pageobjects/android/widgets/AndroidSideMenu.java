@@ -7,8 +7,8 @@ import io.appium.java_client.pagefactory.HowToUseLocators;
 import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.support.PageFactory;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import pageobjects.base.AbstractWidget;
+import pageobjects.base.CompiledSearchContext;
 import utils.TestReporter;
 
 import static io.appium.java_client.pagefactory.LocatorGroupStrategy.ALL_POSSIBLE;
@@ -42,9 +42,6 @@ public class AndroidSideMenu extends AbstractWidget {
   @AndroidFindBy(xpath = "//*[@resource-id='android:id/content']")
   private MobileElement phoneNumberWidget;
 
-  private final WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-
-
   /**
    * Initializes the side menu with the container.
    *
@@ -52,9 +49,10 @@ public class AndroidSideMenu extends AbstractWidget {
    */
   public AndroidSideMenu(MobileElement container) {
     super(container);
-    PageFactory.initElements(new AppiumFieldDecorator(container), this);
+    PageFactory.initElements(new AppiumFieldDecorator(new CompiledSearchContext(container)), this);
     TestReporter.addInfoToReport("Initialising the Side menu");
-    wait.until(ExpectedConditions.visibilityOf(profileName));
+    waitUntil(ExpectedConditions.visibilityOf(profileName), WAIT_TIMEOUT);
+    recordLoadTime();
     TestReporter.addScreenshotToReport("Android side menu widget is loaded successfully");
   }
 
@@ -63,8 +61,7 @@ public class AndroidSideMenu extends AbstractWidget {
    */
   public AndroidProfileWidget openProfile() {
     TestReporter.addInfoToReport("Clicks on profile button");
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.elementToBeClickable(profileButton));
+    waitUntil(ExpectedConditions.elementToBeClickable(profileButton), WAIT_TIMEOUT);
     profileButton.click();
     AndroidProfileWidget AndroidProfileWidget = new AndroidProfileWidget(profileContainer);
     return AndroidProfileWidget;
@@ -77,8 +74,7 @@ public class AndroidSideMenu extends AbstractWidget {
    */
   public String getProfileName() {
     TestReporter.addInfoToReport("Getting the text of the profile name");
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.visibilityOf(profileName));
+    waitUntil(ExpectedConditions.visibilityOf(profileName), WAIT_TIMEOUT);
     return profileName.getText();
   }
 
@@ -87,8 +83,7 @@ public class AndroidSideMenu extends AbstractWidget {
    */
   public AndroidPhoneNumberWidget logout() {
     TestReporter.addInfoToReport("Clicking the logout button");
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.elementToBeClickable(logoutButton));
+    waitUntil(ExpectedConditions.elementToBeClickable(logoutButton), WAIT_TIMEOUT);
     logoutButton.click();
     logger.info("Logout button clicked");
     AndroidPhoneNumberWidget androidPhoneNumberWidget = new AndroidPhoneNumberWidget(phoneNumberWidget);
@@ -103,7 +98,7 @@ public class AndroidSideMenu extends AbstractWidget {
   public boolean isProfileUpdatedSuccessfully() {
     TestReporter.addInfoToReport("Checking if the profile update success popup is displayed");
     try {
-      wait.until(ExpectedConditions.visibilityOf(profileUpdatedSuccessfullyPopup));
+      waitUntil(ExpectedConditions.visibilityOf(profileUpdatedSuccessfullyPopup), WAIT_TIMEOUT);
       return profileUpdatedSuccessfullyPopup.isDisplayed();
     } catch (NoSuchElementException e) {
       logger.debug("Profile update success popup not displayed", e);
@@ -5,13 +5,14 @@ import io.appium.java_client.pagefactory.AndroidFindBy;
 import io.appium.java_client.pagefactory.AppiumFieldDecorator;
 import io.appium.java_client.pagefactory.HowToUseLocators;
 import org.openqa.selenium.By;
-import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.PageFactory;
 import org.openqa.selenium.support.pagefactory.ByAll;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import pageobjects.android.screens.AndroidHomeRidesScreen;
 import pageobjects.base.AbstractWidget;
+import pageobjects.base.CompiledSearchContext;
+import pageobjects.base.LocatorCompiler;
+import pageobjects.base.TextInputEngine;
 import utils.TestReporter;
 
 import java.util.List;
@@ -33,7 +34,7 @@ public class AndroidValidateCodeNumberWidget extends AbstractWidget {
   private MobileElement permissionsRequestContainer;
 
   private static final By inputFieldsBy = new ByAll(
-          By.xpath("//android.widget.EditText[@resource-id='com.hdw.james.rider:id/inputEditText']"));
+          LocatorCompiler.compile("//android.widget.EditText[@resource-id='com.hdw.james.rider:id/inputEditText']"));
 
   /**
    * Initializes validate code number widget with the container.
@@ -42,11 +43,11 @@ public class AndroidValidateCodeNumberWidget extends AbstractWidget {
    */
   public AndroidValidateCodeNumberWidget(MobileElement container) {
     super(container);
-    PageFactory.initElements(new AppiumFieldDecorator(container), this);
+    PageFactory.initElements(new AppiumFieldDecorator(new CompiledSearchContext(container)), this);
     TestReporter.addInfoToReport("Initialising the AndroidValidateCodeNumber widget");
     driver.hideKeyboard();
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.visibilityOf(validateCodeNumberTitle));
+    waitUntil(ExpectedConditions.visibilityOf(validateCodeNumberTitle), WAIT_TIMEOUT);
+    recordLoadTime();
     TestReporter.addScreenshotToReport("Android validate code number widget is loaded successfully");
   }
 
@@ -58,19 +59,13 @@ public class AndroidValidateCodeNumberWidget extends AbstractWidget {
    */
   public AndroidValidateCodeNumberWidget enterValueInEachField(String value) {
     TestReporter.addInfoToReport("Starting to enter value in each input field");
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.presenceOfAllElementsLocatedBy(inputFieldsBy));
+    waitUntil(ExpectedConditions.presenceOfAllElementsLocatedBy(inputFieldsBy), WAIT_TIMEOUT);
     List<MobileElement> inputFieldsList = driver.findElements(inputFieldsBy);
     if (value.length() > inputFieldsList.size()) {
       logger.error("The entered value is longer than the number of available text fields.");
       throw new IllegalArgumentException("The entered value is longer than the number of available text fields.");
     }
-    for (int i = 0; i < value.length(); i++) {
-      WebElement inputField = inputFieldsList.get(i);
-      char charToSend = value.charAt(i);
-      logger.debug("Sending character '{}' to the text field at position {}", charToSend, i);
-      inputField.sendKeys(Character.toString(charToSend));
-    }
+    TextInputEngine.typeInEachField(driver, inputFieldsList, value);
     logger.debug("Value entered successfully in all text fields");
     return this;
   }
@@ -80,8 +75,7 @@ public class AndroidValidateCodeNumberWidget extends AbstractWidget {
    */
   public AndroidHomeRidesScreen acceptAndGoToHomeRidesPage() {
     TestReporter.addInfoToReport("Clicks on continue button");
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.visibilityOf(continueButton));
+    waitUntil(ExpectedConditions.visibilityOf(continueButton), WAIT_TIMEOUT);
     continueButton.click();
     AndroidHomeRidesScreen androidHomeRidesScreen = new AndroidHomeRidesScreen();
     return androidHomeRidesScreen;
@@ -92,8 +86,7 @@ public class AndroidValidateCodeNumberWidget extends AbstractWidget {
    */
   public AndroidPermissionsRequestWidget acceptAndGoToPermissionsRequestWidget() {
     TestReporter.addInfoToReport("Clicks on continue button");
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
-    wait.until(ExpectedConditions.visibilityOf(continueButton));
+    waitUntil(ExpectedConditions.visibilityOf(continueButton), WAIT_TIMEOUT);
     continueButton.click();
     AndroidPermissionsRequestWidget permissionsRequestWidget =
             new AndroidPermissionsRequestWidget(permissionsRequestContainer);
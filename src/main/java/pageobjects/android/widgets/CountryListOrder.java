@@ -0,0 +1,44 @@
+package pageobjects.android.widgets;
+
+import com.neovisionaries.i18n.CountryCode;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Estimated order of the countries in the country code list of the app: the officially assigned
+ * countries sorted by English name, ignoring accents and case. The app list may differ a little,
+ * so the position is only used to bound the search.
+ */
+final class CountryListOrder {
+
+  private static final List<CountryCode> ORDER = createOrder();
+
+  /**
+   * Private constructor to hide the implicit one.
+   */
+  private CountryListOrder() {
+  }
+
+  /**
+   * Estimates the position of a country in the list.
+   *
+   * @param countryCode the country
+   * @return the zero based position, or the middle of the list when the country is not known
+   */
+  static int estimatePosition(CountryCode countryCode) {
+    int position = ORDER.indexOf(countryCode);
+    return position >= 0 ? position : ORDER.size() / 2;
+  }
+
+  private static List<CountryCode> createOrder() {
+    Collator collator = Collator.getInstance(Locale.ENGLISH);
+    collator.setStrength(Collator.PRIMARY);
+    return Arrays.stream(CountryCode.values())
+            .filter(country -> country.getAssignment() == CountryCode.Assignment.OFFICIALLY_ASSIGNED)
+            .sorted((first, second) -> collator.compare(first.getName(), second.getName()))
+            .collect(Collectors.toList());
+  }
+}
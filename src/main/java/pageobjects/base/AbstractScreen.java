@@ -11,14 +11,18 @@ import io.appium.java_client.touch.offset.PointOption;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
 import org.jetbrains.annotations.NotNull;
 import org.openqa.selenium.By;
 import org.openqa.selenium.Dimension;
 import org.openqa.selenium.Point;
+import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
+import utils.LoadTimeMetrics;
 import utils.TestReporter;
 
 public abstract class AbstractScreen {
@@ -26,7 +30,7 @@ public abstract class AbstractScreen {
   /**
    * Logger.
    */
-  protected static final Logger logger = LogManager.getLogger(AbstractScreen.class);
+  protected final Logger logger = LogManager.getLogger(getClass());
 
   protected AppiumDriver<MobileElement> driver;
 
@@ -43,7 +47,55 @@ public abstract class AbstractScreen {
   private static final int TIMEOUT = 1500;
 
   public AbstractScreen() {
-    driver = AppiumDriverBase.getDriver();
+    this(AppiumDriverBase.getDriver());
+  }
+
+  /**
+   * Builds the screen on the given driver.
+   *
+   * @param driver the driver of the session
+   */
+  protected AbstractScreen(AppiumDriver<MobileElement> driver) {
+    this.driver = driver;
+  }
+
+  /**
+   * Waits with the shared {@link WaitEngine} until the condition returns a value that is neither
+   * null nor false.
+   *
+   * @param condition the condition, usually one of the ExpectedConditions
+   * @param timeoutSeconds maximum time to wait
+   * @param <V> the type of the value returned by the condition
+   * @return the value returned by the condition
+   */
+  protected <V> V waitUntil(Function<? super WebDriver, V> condition, long timeoutSeconds) {
+    return WaitEngine.until(driver, condition, timeoutSeconds);
+  }
+
+  /**
+   * Waits until all the elements are in the given state, checking them together on one page
+   * source per check.
+   *
+   * @param state the state the elements must be in
+   * @param timeoutSeconds maximum time to wait
+   * @param xpaths the XPath locators of the elements
+   * @return the elements by locator, to read or tap them without another lookup
+   */
+  protected Map<String, SnapshotElement> waitForAll(ElementState state, long timeoutSeconds, String... xpaths) {
+    return PageSourceSnapshot.waitForAll(driver, state, timeoutSeconds, xpaths);
+  }
+
+  /**
+   * Waits until at least one of the elements is in the given state, checking them together on one
+   * page source per check.
+   *
+   * @param state the state the elements must be in
+   * @param timeoutSeconds maximum time to wait
+   * @param xpaths the XPath locators of the elements
+   * @return the elements in the state by locator, to read or tap them without another lookup
+   */
+  protected Map<String, SnapshotElement> waitForAny(ElementState state, long timeoutSeconds, String... xpaths) {
+    return PageSourceSnapshot.waitForAny(driver, state, timeoutSeconds, xpaths);
   }
 
   /**
@@ -55,7 +107,7 @@ public abstract class AbstractScreen {
     TouchAction touchAction = new TouchAction(AppiumDriverBase.getDriver());
     int centerPointX = windowSize.getWidth() / HALF;
     int centerPointY = windowSize.getHeight() / HALF;
-    logger.debug("Tap the center of the screen at point ({}, {})", centerPointX, centerPointY);
+    logger.debug("Tap the center of the screen at point ({}, {})", Unbox.box(centerPointX), Unbox.box(centerPointY));
     touchAction.tap(PointOption.point(centerPointX, centerPointY)).perform();
   }
 
@@ -105,12 +157,12 @@ public abstract class AbstractScreen {
    * @param element The custom message to write in the log.
    */
   public void isLoaded(MobileElement element) {
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
     try {
       final Instant start = Instant.now();
-      wait.until(ExpectedConditions.visibilityOf(element));
+      waitUntil(ExpectedConditions.visibilityOf(element), WAIT_TIMEOUT);
       final Instant finish = Instant.now();
       final long timeElapsed = Duration.between(start, finish).toMillis();
+      LoadTimeMetrics.record(getClass(), timeElapsed);
       TestReporter.addScreenshotToReport("Screen load time " + timeElapsed + "milliseconds");
     } catch (Exception e) {
       throwNotLoadedException("Screen not loaded exception", e);
@@ -123,12 +175,12 @@ public abstract class AbstractScreen {
    * @param elementBy The custom message to write in the log.
    */
   public void isLoadedBy(By elementBy) {
-    WebDriverWait wait = new WebDriverWait(driver, WAIT_TIMEOUT);
     try {
       final Instant start = Instant.now();
-      wait.until(ExpectedConditions.presenceOfElementLocated(elementBy));
+      waitUntil(ExpectedConditions.presenceOfElementLocated(elementBy), WAIT_TIMEOUT);
       final Instant finish = Instant.now();
       final long timeElapsed = Duration.between(start, finish).toMillis();
+      LoadTimeMetrics.record(getClass(), timeElapsed);
       TestReporter.addScreenshotToReport("Screen load time " + timeElapsed + "milliseconds");
     } catch (Exception e) {
       throwNotLoadedException("Screen not loaded exception", e);
@@ -6,23 +6,88 @@ import io.appium.java_client.pagefactory.Widget;
 import io.appium.java_client.touch.WaitOptions;
 import io.appium.java_client.touch.offset.PointOption;
 import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.openqa.selenium.Dimension;
+import org.openqa.selenium.WebDriver;
+import utils.LoadTimeMetrics;
 
 public abstract class AbstractWidget extends Widget {
 
   /**
    * Logger.
    */
-  protected static final Logger logger = LogManager.getLogger(AbstractWidget.class);
+  protected final Logger logger = LogManager.getLogger(getClass());
   protected AppiumDriver<MobileElement> driver;
 
   protected static final int WAIT_TIMEOUT = 30;
 
+  private final long constructionStartNanos = System.nanoTime();
+
   public AbstractWidget(MobileElement container) {
+    this(container, AppiumDriverBase.getDriver());
+  }
+
+  /**
+   * Builds the widget on the given driver.
+   *
+   * @param container the element that contains the widget
+   * @param driver the driver of the session
+   */
+  protected AbstractWidget(MobileElement container, AppiumDriver<MobileElement> driver) {
     super(container);
-    driver = AppiumDriverBase.getDriver();
+    this.driver = driver;
+  }
+
+  /**
+   * Records the time elapsed since the widget construction started as its load time. Called by
+   * the widget constructors once the widget is visible.
+   */
+  protected void recordLoadTime() {
+    LoadTimeMetrics.record(getClass(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - constructionStartNanos));
+  }
+
+  /**
+   * Waits with the shared {@link WaitEngine} until the condition returns a value that is neither
+   * null nor false.
+   *
+   * @param condition the condition, usually one of the ExpectedConditions
+   * @param timeoutSeconds maximum time to wait
+   * @param <V> the type of the value returned by the condition
+   * @return the value returned by the condition
+   */
+  protected <V> V waitUntil(Function<? super WebDriver, V> condition, long timeoutSeconds) {
+    return WaitEngine.until(driver, condition, timeoutSeconds);
+  }
+
+  /**
+   * Waits until all the elements are in the given state, checking them together on one page
+   * source per check.
+   *
+   * @param state the state the elements must be in
+   * @param timeoutSeconds maximum time to wait
+   * @param xpaths the XPath locators of the elements
+   * @return the elements by locator, to read or tap them without another lookup
+   */
+  protected Map<String, SnapshotElement> waitForAll(ElementState state, long timeoutSeconds, String... xpaths) {
+    return PageSourceSnapshot.waitForAll(driver, state, timeoutSeconds, xpaths);
+  }
+
+  /**
+   * Waits until at least one of the elements is in the given state, checking them together on one
+   * page source per check.
+   *
+   * @param state the state the elements must be in
+   * @param timeoutSeconds maximum time to wait
+   * @param xpaths the XPath locators of the elements
+   * @return the elements in the state by locator, to read or tap them without another lookup
+   */
+  protected Map<String, SnapshotElement> waitForAny(ElementState state, long timeoutSeconds, String... xpaths) {
+    return PageSourceSnapshot.waitForAny(driver, state, timeoutSeconds, xpaths);
   }
 
   /**
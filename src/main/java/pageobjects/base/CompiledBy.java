@@ -0,0 +1,137 @@
+package pageobjects.base;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.InvalidSelectorException;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.UnsupportedCommandException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsDriver;
+import utils.LocatorLatencyReport;
+
+/**
+ * An XPath locator that runs as a native lookup when {@link LocatorCompiler} could compile it.
+ * When the server rejects the native strategy the locator falls back to XPath for the rest of the
+ * run. The duration of every lookup is recorded in the {@link LocatorLatencyReport}.
+ *
+ * <p>The compiled locators start with //, so like the XPath they come from they search the whole
+ * screen even when they are used from a widget container: the native lookup runs from the driver
+ * and not from the container element, where it would only see the descendants.</p>
+ *
+ * <p>With -DlocatorBaseline=true the first lookups of a compiled locator are also run as XPath,
+ * so the report shows the latency before and after the compilation.</p>
+ */
+public final class CompiledBy extends By {
+
+  private static final Logger logger = LogManager.getLogger(CompiledBy.class);
+
+  private static final String XPATH_STRATEGY = "xpath";
+  private static final int BASELINE_SAMPLES = 3;
+  private static final boolean BASELINE_ENABLED = Boolean.parseBoolean(
+          System.getProperty("locatorBaseline", "false"));
+
+  private final String xpath;
+  private final By xpathBy;
+  private final By nativeBy;
+  private final String nativeStrategy;
+  private final AtomicInteger baselineSamples = new AtomicInteger();
+  private volatile boolean nativeSupported;
+
+  CompiledBy(String xpath, By nativeBy) {
+    this.xpath = xpath;
+    this.xpathBy = By.xpath(xpath);
+    this.nativeBy = nativeBy;
+    this.nativeStrategy = nativeBy == null ? XPATH_STRATEGY : nativeBy.toString().split(":", 2)[0]
+            .replace("By.", "");
+    this.nativeSupported = nativeBy != null;
+  }
+
+  /**
+   * Gets the original XPath of the locator.
+   *
+   * @return the XPath expression
+   */
+  public String getXpath() {
+    return xpath;
+  }
+
+  /**
+   * Tells if the locator runs as a native lookup.
+   *
+   * @return true when the native lookup is used
+   */
+  public boolean isCompiled() {
+    return nativeSupported;
+  }
+
+  @Override
+  public WebElement findElement(SearchContext context) {
+    if (nativeSupported) {
+      try {
+        sampleBaseline(context);
+        final long start = System.nanoTime();
+        WebElement element = nativeBy.findElement(toNativeContext(context));
+        LocatorLatencyReport.record(xpath, nativeStrategy, System.nanoTime() - start);
+        return element;
+      } catch (InvalidSelectorException | UnsupportedCommandException e) {
+        disableNativeLookup(e);
+      }
+    }
+    final long start = System.nanoTime();
+    WebElement element = xpathBy.findElement(context);
+    LocatorLatencyReport.record(xpath, XPATH_STRATEGY, System.nanoTime() - start);
+    return element;
+  }
+
+  @Override
+  public List<WebElement> findElements(SearchContext context) {
+    if (nativeSupported) {
+      try {
+        sampleBaseline(context);
+        final long start = System.nanoTime();
+        List<WebElement> elements = nativeBy.findElements(toNativeContext(context));
+        LocatorLatencyReport.record(xpath, nativeStrategy, System.nanoTime() - start);
+        return elements;
+      } catch (InvalidSelectorException | UnsupportedCommandException e) {
+        disableNativeLookup(e);
+      }
+    }
+    final long start = System.nanoTime();
+    List<WebElement> elements = xpathBy.findElements(context);
+    LocatorLatencyReport.record(xpath, XPATH_STRATEGY, System.nanoTime() - start);
+    return elements;
+  }
+
+  private static SearchContext toNativeContext(SearchContext context) {
+    if (context instanceof WebElement && context instanceof WrapsDriver) {
+      return ((WrapsDriver) context).getWrappedDriver();
+    }
+    return context;
+  }
+
+  private void sampleBaseline(SearchContext context) {
+    if (!BASELINE_ENABLED || baselineSamples.getAndIncrement() >= BASELINE_SAMPLES) {
+      return;
+    }
+    final long start = System.nanoTime();
+    try {
+      xpathBy.findElements(context);
+      LocatorLatencyReport.record(xpath, XPATH_STRATEGY, System.nanoTime() - start);
+    } catch (Exception e) {
+      logger.debug("Baseline XPath lookup failed for [{}]", xpath, e);
+    }
+  }
+
+  private void disableNativeLookup(RuntimeException e) {
+    logger.warn("Native lookup [{}] is not supported, falling back to XPath [{}]", nativeBy, xpath, e);
+    nativeSupported = false;
+  }
+
+  @Override
+  public String toString() {
+    return nativeSupported ? nativeBy + " (compiled from By.xpath: " + xpath + ")" : xpathBy.toString();
+  }
+}
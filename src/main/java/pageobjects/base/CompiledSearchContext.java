@@ -0,0 +1,73 @@
+package pageobjects.base;
+
+import io.appium.java_client.pagefactory.bys.ContentMappedBy;
+import java.util.List;
+import org.openqa.selenium.By;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsDriver;
+import org.openqa.selenium.internal.FindsByXPath;
+import org.openqa.selenium.support.pagefactory.ByChained;
+
+/**
+ * Search context to give to the AppiumFieldDecorator so the XPath locators of the
+ * {@code @AndroidFindBy} annotations are run through the {@link LocatorCompiler}.
+ *
+ * <p>The composite locators built by the decorator (ContentMappedBy, ByAll, ByChained) are
+ * evaluated against this context, so every XPath they contain reaches
+ * {@link #findElementByXPath(String)}. Any other locator goes straight to the wrapped context.</p>
+ */
+public final class CompiledSearchContext implements SearchContext, WrapsDriver, FindsByXPath {
+
+  private final SearchContext context;
+
+  /**
+   * Wraps a search context.
+   *
+   * @param context the driver or the container element of a widget
+   */
+  public CompiledSearchContext(SearchContext context) {
+    this.context = context;
+  }
+
+  @Override
+  public List<WebElement> findElements(By by) {
+    if (isComposite(by) || by instanceof By.ByXPath) {
+      return by.findElements(this);
+    }
+    return context.findElements(by);
+  }
+
+  @Override
+  public WebElement findElement(By by) {
+    if (isComposite(by) || by instanceof By.ByXPath) {
+      return by.findElement(this);
+    }
+    return context.findElement(by);
+  }
+
+  @Override
+  public WebElement findElementByXPath(String using) {
+    return LocatorCompiler.compile(using).findElement(context);
+  }
+
+  @Override
+  public List<WebElement> findElementsByXPath(String using) {
+    return LocatorCompiler.compile(using).findElements(context);
+  }
+
+  @Override
+  public WebDriver getWrappedDriver() {
+    if (context instanceof WebDriver) {
+      return (WebDriver) context;
+    }
+    return ((WrapsDriver) context).getWrappedDriver();
+  }
+
+  private static boolean isComposite(By by) {
+    return by instanceof ContentMappedBy
+            || by instanceof org.openqa.selenium.support.pagefactory.ByAll
+            || by instanceof ByChained;
+  }
+}
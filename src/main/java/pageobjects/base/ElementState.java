@@ -0,0 +1,21 @@
+package pageobjects.base;
+
+/**
+ * Enum to represent the state the elements must be in for a multi-element wait.
+ */
+public enum ElementState {
+  PRESENT("present"),
+  VISIBLE("visible"),
+  CLICKABLE("clickable");
+
+  private final String value;
+
+  ElementState(String value) {
+    this.value = value;
+  }
+
+  @Override
+  public String toString() {
+    return value;
+  }
+}
@@ -0,0 +1,109 @@
+package pageobjects.base;
+
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.MobileElement;
+import io.appium.java_client.TouchAction;
+import io.appium.java_client.touch.offset.PointOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.Point;
+
+/**
+ * Reads all the rows of a list from one page source, instead of one getText() call per row, and
+ * taps the chosen row at the coordinates read with it, instead of looking it up again.
+ *
+ * <p>The rows are the elements matching the XPath of the list followed by the row path, by
+ * default the children of the list.</p>
+ */
+public final class ListReader {
+
+  private static final Logger logger = LogManager.getLogger(ListReader.class);
+
+  private static final String CHILDREN_PATH = "/*";
+
+  private final AppiumDriver<MobileElement> driver;
+  private final String rowsXpath;
+
+  /**
+   * Creates a reader of the children of a list.
+   *
+   * @param driver the driver of the session
+   * @param listXpath the XPath locator of the list
+   */
+  public ListReader(AppiumDriver<MobileElement> driver, String listXpath) {
+    this(driver, listXpath, CHILDREN_PATH);
+  }
+
+  /**
+   * Creates a reader of the rows of a list.
+   *
+   * @param driver the driver of the session
+   * @param listXpath the XPath locator of the list
+   * @param rowPath the XPath of the rows relative to the list, for example "//*[@resource-id='text']"
+   */
+  public ListReader(AppiumDriver<MobileElement> driver, String listXpath, String rowPath) {
+    this.driver = driver;
+    this.rowsXpath = listXpath + rowPath;
+  }
+
+  /**
+   * Reads the rows of the list, waiting for the list to have at least one row.
+   *
+   * @param timeoutSeconds maximum time to wait for the rows
+   * @return the rows in the order of the list, with their texts, resource-ids and bounds
+   */
+  public List<SnapshotElement> readRows(long timeoutSeconds) {
+    PageSourceSnapshot.waitForAll(driver, ElementState.PRESENT, timeoutSeconds, rowsXpath);
+    return PageSourceSnapshot.of(driver).findElements(rowsXpath);
+  }
+
+  /**
+   * Reads the texts of the rows of the list.
+   *
+   * @param timeoutSeconds maximum time to wait for the rows
+   * @return the texts of each row and its descendants, in the order of the list
+   */
+  public List<String> readTexts(long timeoutSeconds) {
+    List<SnapshotElement> rows = readRows(timeoutSeconds);
+    List<String> texts = new ArrayList<>(rows.size());
+    for (SnapshotElement row : rows) {
+      texts.add(row.getAllText());
+    }
+    return texts;
+  }
+
+  /**
+   * Finds the first row that contains a text, in the row or in its descendants.
+   *
+   * @param text the text to look for
+   * @param timeoutSeconds maximum time to wait for the rows
+   * @return the row, or null when no visible row contains the text
+   */
+  public SnapshotElement findRow(String text, long timeoutSeconds) {
+    for (SnapshotElement row : readRows(timeoutSeconds)) {
+      if (row.getAllText().contains(text)) {
+        return row;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Taps the centre of a row read by this reader, with one touch action.
+   *
+   * @param row the row to tap
+   * @throws NoSuchElementException if the page source does not have the bounds of the row
+   */
+  public void tap(SnapshotElement row) {
+    Point center = row.getCenter();
+    if (center == null) {
+      throw new NoSuchElementException("The row " + row + " of " + rowsXpath + " has no bounds to tap");
+    }
+    logger.debug("Tap the row {} at ({}, {})", row, Unbox.box(center.getX()), Unbox.box(center.getY()));
+    new TouchAction<>(driver).tap(PointOption.point(center)).perform();
+  }
+}
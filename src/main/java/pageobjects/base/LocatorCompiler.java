@@ -0,0 +1,101 @@
+package pageobjects.base;
+
+import io.appium.java_client.MobileBy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.By;
+
+/**
+ * Compiles the simple XPath locators used by the page objects into native UiAutomator2 lookups,
+ * so the device does not have to serialize the whole hierarchy to XML for every lookup.
+ *
+ * <p>Supported patterns:</p>
+ * <ul>
+ *   <li>{@code //*[@resource-id='id']} is run as an {@code id} lookup</li>
+ *   <li>{@code //class[@resource-id='id']} and {@code //*[@text='text']} are run as a
+ *   {@code -android uiautomator} UiSelector lookup</li>
+ *   <li>{@code //class} is run as a {@code class name} lookup</li>
+ * </ul>
+ * Any other XPath is run as XPath. Compilation can be disabled with -DcompileLocators=false.
+ */
+public final class LocatorCompiler {
+
+  private static final Logger logger = LogManager.getLogger(LocatorCompiler.class);
+
+  private static final String CLASS_NAME = "(\\*|[\\w.$]+)";
+  private static final String VALUE = "'([^']*)'";
+  private static final Pattern ATTRIBUTE_PATTERN = Pattern.compile(
+          "^//" + CLASS_NAME + "\\[@(resource-id|text)=" + VALUE + "]$");
+  private static final Pattern CLASS_PATTERN = Pattern.compile("^//([\\w.$]+)$");
+  private static final String ANY_CLASS = "*";
+
+  private static final boolean ENABLED = Boolean.parseBoolean(
+          System.getProperty("compileLocators", "true"));
+
+  private static final Map<String, CompiledBy> compiledLocators = new ConcurrentHashMap<>();
+
+  /**
+   * Private constructor to hide the implicit one.
+   */
+  private LocatorCompiler() {
+  }
+
+  /**
+   * Compiles an XPath locator. The result is cached, so the same XPath always gives the same
+   * locator.
+   *
+   * @param xpath the XPath locator
+   * @return the compiled locator, which runs as XPath when the expression is not supported
+   */
+  public static CompiledBy compile(String xpath) {
+    return compiledLocators.computeIfAbsent(xpath, LocatorCompiler::createCompiledBy);
+  }
+
+  private static CompiledBy createCompiledBy(String xpath) {
+    By nativeBy = ENABLED ? toNativeBy(xpath) : null;
+    if (nativeBy == null) {
+      logger.debug("Locator [{}] runs as XPath", xpath);
+    } else {
+      logger.debug("Locator [{}] compiled to [{}]", xpath, nativeBy);
+    }
+    return new CompiledBy(xpath, nativeBy);
+  }
+
+  private static By toNativeBy(String xpath) {
+    Matcher classMatcher = CLASS_PATTERN.matcher(xpath);
+    if (classMatcher.matches()) {
+      return By.className(classMatcher.group(1));
+    }
+
+    Matcher attributeMatcher = ATTRIBUTE_PATTERN.matcher(xpath);
+    if (!attributeMatcher.matches()) {
+      return null;
+    }
+    String className = attributeMatcher.group(1);
+    String attribute = attributeMatcher.group(2);
+    String value = attributeMatcher.group(3);
+
+    if (ANY_CLASS.equals(className) && "resource-id".equals(attribute)) {
+      return By.id(value);
+    }
+
+    StringBuilder selector = new StringBuilder("new UiSelector()");
+    if (!ANY_CLASS.equals(className)) {
+      selector.append(".className(\"").append(escape(className)).append("\")");
+    }
+    if ("resource-id".equals(attribute)) {
+      selector.append(".resourceId(\"").append(escape(value)).append("\")");
+    } else {
+      selector.append(".text(\"").append(escape(value)).append("\")");
+    }
+    return MobileBy.AndroidUIAutomator(selector.toString());
+  }
+
+  private static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+}
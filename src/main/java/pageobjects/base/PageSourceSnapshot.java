@@ -0,0 +1,252 @@
+package pageobjects.base;
+
+import appiumdriver.InstrumentedAndroidDriver;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+import org.openqa.selenium.WebDriver;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * In-memory copy of the UI hierarchy taken with one getPageSource() call. The XPath locators and
+ * the attribute reads (text, displayed, bounds) are answered locally, so several read-only
+ * assertions on a static screen only cost one call to the Appium server.
+ *
+ * <p>Each thread keeps its last snapshot. It is reused until a command that may change the
+ * screen is sent through the {@link InstrumentedAndroidDriver} (click, send keys, touch action,
+ * hide keyboard, back...) or until it is older than -DsnapshotMaxAge milliseconds.</p>
+ */
+public final class PageSourceSnapshot {
+
+  private static final Logger logger = LogManager.getLogger(PageSourceSnapshot.class);
+
+  private static final long MAX_AGE_MILLIS = Long.parseLong(System.getProperty("snapshotMaxAge", "3000"));
+  private static final long POLLING_MILLIS = 250;
+
+  private static final ThreadLocal<PageSourceSnapshot> currentSnapshot = new ThreadLocal<>();
+
+  private final WebDriver driver;
+  private final Document document;
+  private final long stateVersion;
+  private final long capturedAtNanos;
+
+  private PageSourceSnapshot(WebDriver driver, Document document, long stateVersion) {
+    this.driver = driver;
+    this.document = document;
+    this.stateVersion = stateVersion;
+    this.capturedAtNanos = System.nanoTime();
+  }
+
+  /**
+   * Gets the current snapshot of the thread, taking a new one when the screen may have changed.
+   *
+   * @param driver the driver of the session
+   * @return a snapshot of the current screen
+   */
+  public static PageSourceSnapshot of(WebDriver driver) {
+    PageSourceSnapshot snapshot = currentSnapshot.get();
+    if (snapshot != null && snapshot.isCurrent(driver)) {
+      return snapshot;
+    }
+    snapshot = capture(driver);
+    currentSnapshot.set(snapshot);
+    return snapshot;
+  }
+
+  /**
+   * Waits until an element is in the snapshot, taking new snapshots while it is not.
+   *
+   * @param driver the driver of the session
+   * @param xpath the XPath locator of the element
+   * @param timeoutSeconds maximum time to wait
+   * @return the element, or null when it does not appear before the timeout
+   */
+  public static SnapshotElement waitForElement(WebDriver driver, String xpath, int timeoutSeconds) {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+    PageSourceSnapshot snapshot = of(driver);
+    while (true) {
+      SnapshotElement element = snapshot.findElement(xpath);
+      if (element != null || System.nanoTime() > deadline) {
+        return element;
+      }
+      try {
+        Thread.sleep(POLLING_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+      snapshot = capture(driver);
+      currentSnapshot.set(snapshot);
+    }
+  }
+
+  /**
+   * Waits until all the elements are in the given state, evaluating all the locators on the same
+   * snapshot so each check costs one getPageSource() call.
+   *
+   * @param driver the driver of the session
+   * @param state the state the elements must be in
+   * @param timeoutSeconds maximum time to wait
+   * @param xpaths the XPath locators of the elements
+   * @return the elements by locator, in the order of the locators
+   * @throws org.openqa.selenium.TimeoutException if an element is not in the state before the
+   *         timeout
+   */
+  public static Map<String, SnapshotElement> waitForAll(WebDriver driver, ElementState state,
+          long timeoutSeconds, String... xpaths) {
+    return waitForElements(driver, state, timeoutSeconds, true, xpaths);
+  }
+
+  /**
+   * Waits until at least one of the elements is in the given state, evaluating all the locators on
+   * the same snapshot so each check costs one getPageSource() call.
+   *
+   * @param driver the driver of the session
+   * @param state the state the elements must be in
+   * @param timeoutSeconds maximum time to wait
+   * @param xpaths the XPath locators of the elements
+   * @return the elements in the state by locator, in the order of the locators
+   * @throws org.openqa.selenium.TimeoutException if no element is in the state before the timeout
+   */
+  public static Map<String, SnapshotElement> waitForAny(WebDriver driver, ElementState state,
+          long timeoutSeconds, String... xpaths) {
+    return waitForElements(driver, state, timeoutSeconds, false, xpaths);
+  }
+
+  /**
+   * Finds the first element of each locator that is in the given state.
+   *
+   * @param xpaths the XPath locators
+   * @param state the state the elements must be in
+   * @return the elements in the state by locator, in the order of the locators
+   */
+  public Map<String, SnapshotElement> findElements(Collection<String> xpaths, ElementState state) {
+    Map<String, SnapshotElement> elements = new LinkedHashMap<>();
+    for (String xpath : xpaths) {
+      for (SnapshotElement element : findElements(xpath)) {
+        if (state == ElementState.PRESENT
+                || element.isDisplayed() && (state != ElementState.CLICKABLE || element.isEnabled())) {
+          elements.put(xpath, element);
+          break;
+        }
+      }
+    }
+    return elements;
+  }
+
+  /**
+   * Discards the snapshot of the current thread.
+   */
+  public static void invalidate() {
+    currentSnapshot.remove();
+  }
+
+  /**
+   * Finds the first element that matches the XPath locator.
+   *
+   * @param xpath the XPath locator
+   * @return the element, or null when there is no match
+   */
+  public SnapshotElement findElement(String xpath) {
+    List<SnapshotElement> elements = findElements(xpath);
+    return elements.isEmpty() ? null : elements.get(0);
+  }
+
+  /**
+   * Finds all the elements that match the XPath locator.
+   *
+   * @param xpath the XPath locator
+   * @return the matching elements
+   */
+  public List<SnapshotElement> findElements(String xpath) {
+    try {
+      NodeList nodes = (NodeList) XPathFactory.newInstance().newXPath()
+              .evaluate(xpath, document, XPathConstants.NODESET);
+      if (nodes.getLength() == 0) {
+        return Collections.emptyList();
+      }
+      List<SnapshotElement> elements = new ArrayList<>(nodes.getLength());
+      for (int i = 0; i < nodes.getLength(); i++) {
+        if (nodes.item(i).getNodeType() == Node.ELEMENT_NODE) {
+          elements.add(new SnapshotElement((Element) nodes.item(i)));
+        }
+      }
+      return elements;
+    } catch (XPathExpressionException e) {
+      throw new IllegalArgumentException("The XPath [" + xpath + "] is not valid", e);
+    }
+  }
+
+  private static Map<String, SnapshotElement> waitForElements(WebDriver driver, ElementState state,
+          long timeoutSeconds, boolean all, String... xpaths) {
+    List<String> locators = Arrays.asList(xpaths);
+    boolean[] firstCheck = {true};
+    String key = (all ? "all " : "any ") + state + " " + String.join(" | ", locators);
+    return WaitEngine.until(key, driver, currentDriver -> {
+      PageSourceSnapshot snapshot;
+      if (firstCheck[0]) {
+        firstCheck[0] = false;
+        snapshot = of(currentDriver);
+      } else {
+        snapshot = capture(currentDriver);
+        currentSnapshot.set(snapshot);
+      }
+      Map<String, SnapshotElement> elements = snapshot.findElements(locators, state);
+      boolean ready = all ? elements.size() == locators.size() : !elements.isEmpty();
+      return ready ? elements : null;
+    }, timeoutSeconds);
+  }
+
+  private boolean isCurrent(WebDriver currentDriver) {
+    if (currentDriver != driver || !(driver instanceof InstrumentedAndroidDriver)) {
+      return false;
+    }
+    long age = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - capturedAtNanos);
+    return age <= MAX_AGE_MILLIS && ((InstrumentedAndroidDriver) driver).getStateVersion() == stateVersion;
+  }
+
+  private static PageSourceSnapshot capture(WebDriver driver) {
+    final long start = System.nanoTime();
+    long version = driver instanceof InstrumentedAndroidDriver
+            ? ((InstrumentedAndroidDriver) driver).getStateVersion() : -1;
+    String pageSource = driver.getPageSource();
+    Document document = parse(pageSource);
+    logger.debug("Page source snapshot taken in {} ms",
+            Unbox.box(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    return new PageSourceSnapshot(driver, document, version);
+  }
+
+  private static Document parse(String pageSource) {
+    try {
+      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+      DocumentBuilder builder = factory.newDocumentBuilder();
+      return builder.parse(new InputSource(new StringReader(pageSource)));
+    } catch (ParserConfigurationException | SAXException | IOException e) {
+      throw new IllegalStateException("Unable to parse the page source", e);
+    }
+  }
+}
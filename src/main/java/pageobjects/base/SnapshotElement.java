@@ -0,0 +1,128 @@
+package pageobjects.base;
+
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Element read from a {@link PageSourceSnapshot}. All the reads are answered locally, without any
+ * call to the Appium server.
+ */
+public final class SnapshotElement {
+
+  private static final Pattern BOUNDS_PATTERN = Pattern.compile(
+          "\\[(-?\\d+),(-?\\d+)]\\[(-?\\d+),(-?\\d+)]");
+
+  private final Element node;
+
+  SnapshotElement(Element node) {
+    this.node = node;
+  }
+
+  /**
+   * Gets an attribute of the element as written in the page source.
+   *
+   * @param name the attribute name
+   * @return the attribute value, or null when the element does not have it
+   */
+  public String getAttribute(String name) {
+    return node.hasAttribute(name) ? node.getAttribute(name) : null;
+  }
+
+  public String getText() {
+    return node.getAttribute("text");
+  }
+
+  /**
+   * Gets the texts of the element and of all its descendants, in document order, joined with a
+   * space. Useful for the rows of a list, where the text is in a child of the clickable row.
+   *
+   * @return the texts, empty when no element has a text
+   */
+  public String getAllText() {
+    StringJoiner texts = new StringJoiner(" ");
+    NodeList descendants = node.getElementsByTagName("*");
+    addText(texts, node);
+    for (int i = 0; i < descendants.getLength(); i++) {
+      addText(texts, (Element) descendants.item(i));
+    }
+    return texts.toString();
+  }
+
+  public String getResourceId() {
+    return getAttribute("resource-id");
+  }
+
+  public String getClassName() {
+    return node.getTagName();
+  }
+
+  /**
+   * Tells if the element is displayed. An element without the displayed attribute is considered
+   * displayed as it is part of the hierarchy.
+   *
+   * @return true if the element is displayed
+   */
+  public boolean isDisplayed() {
+    String displayed = getAttribute("displayed");
+    return displayed == null || Boolean.parseBoolean(displayed);
+  }
+
+  public boolean isEnabled() {
+    return Boolean.parseBoolean(getAttribute("enabled"));
+  }
+
+  /**
+   * Gets the bounds of the element on the screen.
+   *
+   * @return the bounds, or null when the page source does not have them
+   */
+  public Rectangle getBounds() {
+    String bounds = getAttribute("bounds");
+    if (bounds == null) {
+      return null;
+    }
+    Matcher matcher = BOUNDS_PATTERN.matcher(bounds);
+    if (!matcher.matches()) {
+      return null;
+    }
+    int left = Integer.parseInt(matcher.group(1));
+    int top = Integer.parseInt(matcher.group(2));
+    int right = Integer.parseInt(matcher.group(3));
+    int bottom = Integer.parseInt(matcher.group(4));
+    return new Rectangle(left, top, bottom - top, right - left);
+  }
+
+  /**
+   * Gets the centre of the element on the screen, useful to tap it without looking it up again.
+   *
+   * @return the centre point, or null when the page source does not have the bounds
+   */
+  public Point getCenter() {
+    Rectangle bounds = getBounds();
+    if (bounds == null) {
+      return null;
+    }
+    return new Point(bounds.getX() + bounds.getWidth() / 2, bounds.getY() + bounds.getHeight() / 2);
+  }
+
+  private static void addText(StringJoiner texts, Element element) {
+    String text = element.getAttribute("text");
+    if (!text.isEmpty()) {
+      texts.add(text);
+    }
+  }
+
+  Element getNode() {
+    return node;
+  }
+
+  @Override
+  public String toString() {
+    return getClassName() + "[resource-id=" + getResourceId() + ", text=" + getText() + "]";
+  }
+}
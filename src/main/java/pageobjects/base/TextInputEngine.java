@@ -0,0 +1,302 @@
+package pageobjects.base;
+
+import com.google.common.collect.ImmutableMap;
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.MobileElement;
+import io.appium.java_client.android.AndroidElement;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * Enters text in the input fields with the fastest {@link TextInputStrategy} that works on the
+ * device. The strategies are tried from the one with the fewest commands to sendKeys; the first
+ * one whose text is read back from the fields is kept for the device for the rest of the run, and
+ * a strategy that fails or leaves the fields with another text is dropped for the device.
+ *
+ * <p>The system property textInput forces a strategy, without any fallback, to measure it against
+ * the others. The time spent per strategy is written to build/reports/text-input.csv at the end of
+ * the suite.
+ */
+public final class TextInputEngine {
+
+  private static final Logger logger = LogManager.getLogger(TextInputEngine.class);
+
+  private static final String REPORT_PATH = "/build/reports/text-input.csv";
+  private static final String AUTO = "auto";
+
+  private static final TextInputStrategy forcedStrategy = readForcedStrategy();
+
+  private static final Map<String, DeviceChoice> choices = new ConcurrentHashMap<>();
+  private static final Map<String, StrategyTiming> timings = new ConcurrentHashMap<>();
+
+  /**
+   * Private constructor to hide the implicit one.
+   */
+  private TextInputEngine() {
+  }
+
+  /**
+   * Replaces the text of a field.
+   *
+   * @param driver the driver of the session
+   * @param field the input field
+   * @param text the new text of the field
+   */
+  public static void replaceText(AppiumDriver<MobileElement> driver, MobileElement field, String text) {
+    enter(driver, InputKind.FIELD, Collections.singletonList(field), text);
+  }
+
+  /**
+   * Enters each character of a value in the corresponding field, as in a code made of one field
+   * per digit. The fields are expected to be empty.
+   *
+   * @param driver the driver of the session
+   * @param fields the input fields, in the order of the characters
+   * @param value the value, one character per field
+   * @throws IllegalArgumentException if the value is longer than the number of fields
+   */
+  public static void typeInEachField(AppiumDriver<MobileElement> driver, List<MobileElement> fields, String value) {
+    if (value.length() > fields.size()) {
+      throw new IllegalArgumentException("The entered value is longer than the number of available text fields.");
+    }
+    if (!value.isEmpty()) {
+      enter(driver, InputKind.EACH_FIELD, fields.subList(0, value.length()), value);
+    }
+  }
+
+  /**
+   * Writes the input time per strategy as a CSV file in the build/reports folder.
+   */
+  public static void writeReport() {
+    if (timings.isEmpty()) {
+      return;
+    }
+    String reportPath = System.getProperty("user.dir") + REPORT_PATH;
+    File reportFile = new File(reportPath);
+    reportFile.getParentFile().mkdirs();
+    try (PrintWriter writer = new PrintWriter(reportFile, StandardCharsets.UTF_8.name())) {
+      writer.println("input,strategy,inputs,failures,characters,avg_ms,avg_ms_per_character");
+      for (Map.Entry<String, StrategyTiming> entry : new TreeMap<>(timings).entrySet()) {
+        StrategyTiming timing = entry.getValue();
+        long inputs = timing.inputs.sum();
+        long characters = timing.characters.sum();
+        long totalMillis = TimeUnit.NANOSECONDS.toMillis(timing.totalNanos.sum());
+        writer.println(entry.getKey() + "," + inputs + "," + timing.failures.sum() + "," + characters + ","
+                + (inputs > 0 ? totalMillis / inputs : 0) + ","
+                + (characters > 0 ? String.format(Locale.ROOT, "%.1f", (double) totalMillis / characters) : "0"));
+      }
+      logger.info("Text input report written to {}", reportPath);
+    } catch (IOException e) {
+      logger.error("Unable to write the text input report", e);
+    }
+  }
+
+  private static void enter(AppiumDriver<MobileElement> driver, InputKind kind, List<MobileElement> fields,
+          String text) {
+    if (forcedStrategy != null) {
+      input(driver, kind, forcedStrategy, fields, text);
+      return;
+    }
+
+    DeviceChoice choice = choices.computeIfAbsent(driver.getCapabilities().getCapability("deviceName") + " "
+            + kind, k -> new DeviceChoice(kind.order));
+    while (true) {
+      TextInputStrategy strategy = choice.getStrategy();
+      if (choice.isChosen()) {
+        input(driver, kind, strategy, fields, text);
+        return;
+      }
+
+      String failure;
+      try {
+        input(driver, kind, strategy, fields, text);
+        failure = hasText(kind, fields, text) ? null : "the fields do not have the entered text";
+      } catch (WebDriverException e) {
+        failure = e.getMessage();
+      }
+      if (failure == null) {
+        choice.choose(strategy);
+        logger.info("Text input strategy for the {} input of [{}]: {}", kind,
+                driver.getCapabilities().getCapability("deviceName"), strategy);
+        return;
+      }
+
+      timings.get(kind + "," + strategy).failures.increment();
+      logger.warn("The text input strategy {} does not work for the {} input: {}", strategy, kind,
+              failure.split("\n", 2)[0]);
+      choice.drop(strategy);
+      for (MobileElement field : fields) {
+        field.clear();
+      }
+    }
+  }
+
+  private static void input(AppiumDriver<MobileElement> driver, InputKind kind, TextInputStrategy strategy,
+          List<MobileElement> fields, String text) {
+    StrategyTiming timing = timings.computeIfAbsent(kind + "," + strategy, k -> new StrategyTiming());
+    final long start = System.nanoTime();
+    switch (strategy) {
+      case SET_VALUE:
+        if (kind == InputKind.FIELD) {
+          replaceValue(fields.get(0), text);
+        } else {
+          for (int i = 0; i < text.length(); i++) {
+            fields.get(i).setValue(Character.toString(text.charAt(i)));
+          }
+        }
+        break;
+      case MOBILE_TYPE:
+        focus(kind, fields.get(0));
+        driver.executeScript("mobile: type", ImmutableMap.of("text", text));
+        break;
+      case ADB_IME:
+        focus(kind, fields.get(0));
+        driver.executeScript("mobile: shell", ImmutableMap.of("command", "am",
+                "args", Arrays.asList("broadcast", "-a", "ADB_INPUT_TEXT", "--es", "msg", shellQuote(text))));
+        break;
+      default:
+        if (kind == InputKind.FIELD) {
+          fields.get(0).clear();
+          fields.get(0).sendKeys(text);
+        } else {
+          for (int i = 0; i < text.length(); i++) {
+            fields.get(i).sendKeys(Character.toString(text.charAt(i)));
+          }
+        }
+        break;
+    }
+    long nanos = System.nanoTime() - start;
+    timing.record(nanos, text.length());
+    logger.debug("Entered {} characters in the {} input with {} in {} ms", Unbox.box(text.length()), kind,
+            strategy, Unbox.box(TimeUnit.NANOSECONDS.toMillis(nanos)));
+  }
+
+  /**
+   * Replaces the text in one command on Android, instead of a clear and a setValue.
+   */
+  private static void replaceValue(MobileElement field, String text) {
+    if (field instanceof AndroidElement) {
+      ((AndroidElement) field).replaceValue(text);
+    } else {
+      field.clear();
+      field.setValue(text);
+    }
+  }
+
+  /**
+   * Puts the focus on the field that receives the typed text: the first field of a code moves the
+   * focus to the next one by itself, a whole field is cleared before.
+   */
+  private static void focus(InputKind kind, MobileElement field) {
+    if (kind == InputKind.FIELD) {
+      field.clear();
+    }
+    field.click();
+  }
+
+  private static boolean hasText(InputKind kind, List<MobileElement> fields, String text) {
+    if (kind == InputKind.FIELD) {
+      return text.equals(fields.get(0).getText());
+    }
+    for (int i = 0; i < text.length(); i++) {
+      if (!Character.toString(text.charAt(i)).equals(fields.get(i).getText())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String shellQuote(String text) {
+    return "'" + text.replace("'", "'\\''") + "'";
+  }
+
+  private static TextInputStrategy readForcedStrategy() {
+    String value = System.getProperty("textInput", AUTO).toLowerCase();
+    return AUTO.equals(value) ? null : TextInputStrategy.getEnum(value);
+  }
+
+  /**
+   * Enum to represent the kinds of text input, each with the strategies ordered by number of
+   * commands.
+   */
+  private enum InputKind {
+    FIELD("field", TextInputStrategy.SET_VALUE, TextInputStrategy.MOBILE_TYPE, TextInputStrategy.ADB_IME),
+    EACH_FIELD("each field", TextInputStrategy.MOBILE_TYPE, TextInputStrategy.ADB_IME,
+            TextInputStrategy.SET_VALUE);
+
+    private final String value;
+    private final List<TextInputStrategy> order;
+
+    InputKind(String value, TextInputStrategy... fasterStrategies) {
+      this.value = value;
+      this.order = new ArrayList<>(Arrays.asList(fasterStrategies));
+      this.order.add(TextInputStrategy.SEND_KEYS);
+    }
+
+    @Override
+    public String toString() {
+      return value;
+    }
+  }
+
+  /**
+   * Strategies still to try for a device and a kind of input, until one of them works. SendKeys,
+   * the last one, is never dropped.
+   */
+  private static final class DeviceChoice {
+    private final List<TextInputStrategy> candidates;
+    private volatile boolean chosen;
+
+    private DeviceChoice(List<TextInputStrategy> order) {
+      candidates = new ArrayList<>(order);
+    }
+
+    private synchronized TextInputStrategy getStrategy() {
+      return candidates.get(0);
+    }
+
+    private boolean isChosen() {
+      return chosen || candidates.size() == 1;
+    }
+
+    private synchronized void choose(TextInputStrategy strategy) {
+      candidates.retainAll(Collections.singletonList(strategy));
+      chosen = true;
+    }
+
+    private synchronized void drop(TextInputStrategy strategy) {
+      if (candidates.size() > 1) {
+        candidates.remove(strategy);
+      }
+    }
+  }
+
+  private static final class StrategyTiming {
+    private final LongAdder inputs = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder characters = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    private void record(long nanos, int length) {
+      inputs.increment();
+      characters.add(length);
+      totalNanos.add(nanos);
+    }
+  }
+}
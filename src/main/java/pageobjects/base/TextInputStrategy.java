@@ -0,0 +1,50 @@
+package pageobjects.base;
+
+/**
+ * Enum to represent how the {@link TextInputEngine} enters text in the input fields.
+ */
+public enum TextInputStrategy {
+  /**
+   * Clear and sendKeys on each field, one command per field.
+   */
+  SEND_KEYS("sendkeys"),
+  /**
+   * Appium setValue, or replaceValue for a whole field, which sets the text without the keyboard.
+   */
+  SET_VALUE("setvalue"),
+  /**
+   * A tap on the first field, then one mobile: type script with all the text for the focused field.
+   */
+  MOBILE_TYPE("type"),
+  /**
+   * A tap on the first field, then one ADB_INPUT_TEXT broadcast to the ADBKeyboard IME. It needs the
+   * IME enabled on the device and the adb_shell feature enabled on the Appium server.
+   */
+  ADB_IME("adbime");
+
+  private final String value;
+
+  TextInputStrategy(String value) {
+    this.value = value;
+  }
+
+  /**
+   * Gets the enum using the strategy value.
+   *
+   * @param value value of the selected strategy: sendkeys, setvalue, type or adbime
+   * @return the selected strategy
+   */
+  public static TextInputStrategy getEnum(String value) {
+    for (TextInputStrategy strategy : values()) {
+      if (strategy.value.equals(value)) {
+        return strategy;
+      }
+    }
+    throw new IllegalArgumentException("The text input strategy [" + value + "] is not known.");
+  }
+
+  @Override
+  public String toString() {
+    return value;
+  }
+}
@@ -0,0 +1,281 @@
+package pageobjects.base;
+
+import appiumdriver.CommandRecorder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Wait shared by all the page objects, in place of a new WebDriverWait with a fixed 500 ms polling
+ * for each call. The condition is checked right away, then after the readiness latency learnt for
+ * the page object and the condition in the previous waits, then with a backoff from 25 ms up to
+ * 500 ms.
+ *
+ * <p>The learnt latencies are kept between runs in the file given by the system property
+ * waitProfile (build/wait-profile.json by default); the latencies of the waits that did not run
+ * in the last run are dropped from it. The time spent waiting per wait key is written to
+ * build/reports/wait-time.csv at the end of the suite.
+ */
+public final class WaitEngine {
+
+  private static final Logger logger = LogManager.getLogger(WaitEngine.class);
+
+  private static final String REPORT_PATH = "/build/reports/wait-time.csv";
+  private static final String DEFAULT_PROFILE_PATH = "/build/wait-profile.json";
+
+  private static final long MIN_POLLING_MILLIS = 25;
+  private static final long MAX_POLLING_MILLIS = 500;
+
+  /**
+   * Part of the learnt latency waited before the second check, to be early rather than late.
+   */
+  private static final double LEARNT_LATENCY_FACTOR = 0.9;
+
+  /**
+   * Weight of the last wait in the learnt latency.
+   */
+  private static final double LEARNING_RATE = 0.3;
+
+  /**
+   * Parts of the condition descriptions that change from one run to the other: the driver and
+   * session of the elements found without a page factory proxy, and the lambda class names.
+   */
+  private static final Pattern RUN_SPECIFIC = Pattern.compile(
+          "\\[\\w+Driver: [^\\]]*\\] -> |/0x[0-9a-f]+@[0-9a-f]+|\\$\\d+");
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private static final Map<String, CallSite> callSites = new ConcurrentHashMap<>();
+  private static final ThreadLocal<long[]> threadWaitingNanos = ThreadLocal.withInitial(() -> new long[1]);
+  private static final File profileFile = new File(System.getProperty("waitProfile",
+          System.getProperty("user.dir") + DEFAULT_PROFILE_PATH));
+
+  static {
+    loadProfile();
+  }
+
+  /**
+   * Private constructor to hide the implicit one.
+   */
+  private WaitEngine() {
+  }
+
+  /**
+   * Waits until the condition returns a value that is neither null nor false. The page object
+   * class and the description of the condition, with its locator, are the key of the learnt
+   * latency, so the key does not change when the page object code moves.
+   *
+   * @param driver the driver the condition is applied to
+   * @param condition the condition, usually one of the ExpectedConditions
+   * @param timeoutSeconds maximum time to wait
+   * @param <V> the type of the value returned by the condition
+   * @return the value returned by the condition
+   * @throws TimeoutException if the condition is not met before the timeout
+   */
+  public static <V> V until(WebDriver driver, Function<? super WebDriver, V> condition, long timeoutSeconds) {
+    return until(callerClass() + " " + RUN_SPECIFIC.matcher(String.valueOf(condition)).replaceAll(""),
+            driver, condition, timeoutSeconds);
+  }
+
+  /**
+   * Waits until the condition returns a value that is neither null nor false.
+   *
+   * @param key the key of the learnt latency, usually the locator
+   * @param driver the driver the condition is applied to
+   * @param condition the condition, usually one of the ExpectedConditions
+   * @param timeoutSeconds maximum time to wait
+   * @param <V> the type of the value returned by the condition
+   * @return the value returned by the condition
+   * @throws TimeoutException if the condition is not met before the timeout
+   */
+  public static <V> V until(String key, WebDriver driver, Function<? super WebDriver, V> condition,
+          long timeoutSeconds) {
+    CallSite callSite = callSites.computeIfAbsent(key, k -> new CallSite());
+    callSite.used = true;
+    final long start = System.nanoTime();
+    final long deadline = start + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+    long pollingMillis = MIN_POLLING_MILLIS;
+    int polls = 0;
+    RuntimeException lastException = null;
+    CommandRecorder.startWait();
+    try {
+      while (true) {
+        polls++;
+        try {
+          V value = condition.apply(driver);
+          if (value != null && !Boolean.FALSE.equals(value)) {
+            callSite.learn(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return value;
+          }
+        } catch (NotFoundException | StaleElementReferenceException e) {
+          lastException = e;
+        }
+
+        long now = System.nanoTime();
+        if (now >= deadline) {
+          callSite.timeouts.increment();
+          throw new TimeoutException("Expected condition failed: waiting for " + key + " (tried for "
+                  + timeoutSeconds + " second(s), " + polls + " checks)", lastException);
+        }
+        long sleepMillis = pollingMillis;
+        long learntMillis = callSite.learntMillis;
+        if (polls == 1 && learntMillis > 0) {
+          long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(now - start);
+          sleepMillis = Math.max(sleepMillis, (long) (learntMillis * LEARNT_LATENCY_FACTOR) - elapsedMillis);
+        } else {
+          pollingMillis = Math.min(pollingMillis * 2, MAX_POLLING_MILLIS);
+        }
+        sleep(Math.min(sleepMillis, TimeUnit.NANOSECONDS.toMillis(deadline - now) + 1));
+      }
+    } finally {
+      CommandRecorder.endWait();
+      long waitedNanos = System.nanoTime() - start;
+      callSite.record(waitedNanos, polls);
+      threadWaitingNanos.get()[0] += waitedNanos;
+    }
+  }
+
+  /**
+   * Resets the waiting time of the current thread, at the start of each test.
+   */
+  public static void resetThreadWaitingTime() {
+    threadWaitingNanos.get()[0] = 0;
+  }
+
+  /**
+   * Gets the time spent waiting by the current thread since the last reset.
+   *
+   * @return the waiting time in milliseconds
+   */
+  public static long getThreadWaitingMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(threadWaitingNanos.get()[0]);
+  }
+
+  /**
+   * Writes the waiting time per wait key as a CSV file in the build/reports folder, and saves the
+   * learnt latencies of the waits of this run for the next run.
+   */
+  public static void writeReport() {
+    if (callSites.isEmpty()) {
+      return;
+    }
+    saveProfile();
+    String reportPath = System.getProperty("user.dir") + REPORT_PATH;
+    File reportFile = new File(reportPath);
+    reportFile.getParentFile().mkdirs();
+    long totalNanos = 0;
+    try (PrintWriter writer = new PrintWriter(reportFile, StandardCharsets.UTF_8.name())) {
+      writer.println("wait,waits,timeouts,checks,avg_ms,max_ms,learnt_ms");
+      for (Map.Entry<String, CallSite> entry : new TreeMap<>(callSites).entrySet()) {
+        CallSite callSite = entry.getValue();
+        long waits = callSite.waits.sum();
+        if (waits == 0) {
+          continue;
+        }
+        totalNanos += callSite.totalNanos.sum();
+        writer.println("\"" + entry.getKey() + "\"," + waits + "," + callSite.timeouts.sum() + ","
+                + callSite.polls.sum() + "," + TimeUnit.NANOSECONDS.toMillis(callSite.totalNanos.sum() / waits)
+                + "," + TimeUnit.NANOSECONDS.toMillis(callSite.maxNanos.get()) + "," + callSite.learntMillis);
+      }
+      logger.info("Waited {} ms in total, wait report written to {}", TimeUnit.NANOSECONDS.toMillis(totalNanos),
+              reportPath);
+    } catch (IOException e) {
+      logger.error("Unable to write the wait report", e);
+    }
+  }
+
+  /**
+   * Gets the simple name of the page object class that called the wait.
+   */
+  private static String callerClass() {
+    return StackWalker.getInstance().walk(frames -> frames
+            .filter(frame -> !frame.getClassName().equals(WaitEngine.class.getName())
+                    && !frame.getClassName().equals(AbstractScreen.class.getName())
+                    && !frame.getClassName().equals(AbstractWidget.class.getName()))
+            .findFirst()
+            .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1))
+            .orElse("unknown"));
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TimeoutException("Interrupted while waiting", e);
+    }
+  }
+
+  private static void loadProfile() {
+    if (!profileFile.exists()) {
+      return;
+    }
+    try {
+      JsonNode profile = mapper.readTree(profileFile);
+      Iterator<Map.Entry<String, JsonNode>> fields = profile.fields();
+      while (fields.hasNext()) {
+        Map.Entry<String, JsonNode> field = fields.next();
+        callSites.computeIfAbsent(field.getKey(), k -> new CallSite()).learntMillis = field.getValue().asLong();
+      }
+      logger.debug("Loaded the learnt latency of {} waits from {}", callSites.size(), profileFile);
+    } catch (IOException e) {
+      logger.warn("Unable to read the wait profile {}", profileFile, e);
+    }
+  }
+
+  private static void saveProfile() {
+    ObjectNode profile = mapper.createObjectNode();
+    for (Map.Entry<String, CallSite> entry : new TreeMap<>(callSites).entrySet()) {
+      if (entry.getValue().used && entry.getValue().learntMillis > 0) {
+        profile.put(entry.getKey(), entry.getValue().learntMillis);
+      }
+    }
+    profileFile.getAbsoluteFile().getParentFile().mkdirs();
+    try {
+      mapper.writerWithDefaultPrettyPrinter().writeValue(profileFile, profile);
+    } catch (IOException e) {
+      logger.warn("Unable to write the wait profile {}", profileFile, e);
+    }
+  }
+
+  private static final class CallSite {
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+    private volatile long learntMillis;
+    private volatile boolean used;
+
+    private void record(long nanos, int checks) {
+      waits.increment();
+      polls.add(checks);
+      totalNanos.add(nanos);
+      maxNanos.accumulate(nanos);
+    }
+
+    private synchronized void learn(long millis) {
+      learntMillis = learntMillis == 0 ? millis
+              : Math.round(learntMillis + LEARNING_RATE * (millis - learntMillis));
+    }
+  }
+}
@@ -0,0 +1,189 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Sends the test events of the spool file to an Elasticsearch compatible endpoint with the bulk
+ * API, many events per request. The shipper remembers how far the spool file was sent: when the
+ * endpoint can not be reached the events stay in the spool and are sent with the next batch.
+ */
+final class EventShipper {
+
+  private static final Logger logger = LogManager.getLogger(EventShipper.class);
+
+  private static final byte[] INDEX_ACTION = "{\"index\":{}}\n".getBytes(StandardCharsets.UTF_8);
+  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private final HttpClient client = HttpClient.newBuilder().connectTimeout(CONNECT_TIMEOUT).build();
+  private final URI bulkUri;
+  private final String apiKey;
+  private final int maxBulkBytes;
+  private long shippedBytes;
+
+  /**
+   * Creates the shipper.
+   *
+   * @param url the base URL of the endpoint
+   * @param index the index receiving the events
+   * @param apiKey the API key sent in the Authorization header, null to send none
+   * @param maxBulkBytes maximum size of the events sent in one bulk request
+   */
+  EventShipper(String url, String index, String apiKey, int maxBulkBytes) {
+    this.bulkUri = URI.create(url.replaceAll("/+$", "") + "/" + index + "/_bulk");
+    this.apiKey = apiKey;
+    this.maxBulkBytes = maxBulkBytes;
+  }
+
+  /**
+   * Creates the shipper with the settings of the system properties eventsUrl, eventsIndex,
+   * eventsApiKey and eventsBulkBytes.
+   *
+   * @return the shipper, or null when no eventsUrl is set
+   */
+  static EventShipper fromSystemProperties() {
+    String url = System.getProperty("eventsUrl");
+    if (url == null || url.isEmpty()) {
+      return null;
+    }
+    return new EventShipper(url, System.getProperty("eventsIndex", "e2e-test-events"),
+            System.getProperty("eventsApiKey"), Integer.parseInt(System.getProperty("eventsBulkBytes", "5242880")));
+  }
+
+  /**
+   * Sends the events of the spool file written since the last successful request.
+   *
+   * @param spool the spool file, one JSON event per line
+   * @return true if all the events of the file were sent
+   */
+  boolean ship(File spool) {
+    while (true) {
+      byte[] bulk;
+      long bulkEnd;
+      try (RandomAccessFile file = new RandomAccessFile(spool, "r")) {
+        if (file.length() <= shippedBytes) {
+          return true;
+        }
+        byte[] events = new byte[(int) Math.min(file.length() - shippedBytes, maxBulkBytes)];
+        file.seek(shippedBytes);
+        file.readFully(events);
+        int end = lastLineEnd(events);
+        if (end < 0) {
+          if (events.length < maxBulkBytes) {
+            // the end of the last event is not written yet
+            return true;
+          }
+          logger.warn("An event of the spool file is longer than {} bytes, it is not sent", maxBulkBytes);
+          file.seek(shippedBytes);
+          file.readLine();
+          shippedBytes = file.getFilePointer();
+          continue;
+        }
+        bulk = toBulk(events, end);
+        bulkEnd = shippedBytes + end;
+      } catch (IOException e) {
+        logger.warn("Unable to read the event spool file {}", spool, e);
+        return false;
+      }
+      if (!post(bulk)) {
+        return false;
+      }
+      shippedBytes = bulkEnd;
+    }
+  }
+
+  private boolean post(byte[] bulk) {
+    HttpRequest.Builder request = HttpRequest.newBuilder(bulkUri)
+            .timeout(REQUEST_TIMEOUT)
+            .header("Content-Type", "application/x-ndjson")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(bulk));
+    if (apiKey != null) {
+      request.header("Authorization", "ApiKey " + apiKey);
+    }
+    final long start = System.nanoTime();
+    try {
+      HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+      if (response.statusCode() / 100 != 2) {
+        logger.warn("The bulk request to {} failed with the status {}, the events are sent again later", bulkUri,
+                response.statusCode());
+        return false;
+      }
+      logItemErrors(response.body());
+      logger.debug("Sent {} bytes of events in {} ms", bulk.length, (System.nanoTime() - start) / 1_000_000);
+      return true;
+    } catch (IOException e) {
+      logger.warn("Unable to send the events to {}, they are sent again later: {}", bulkUri, e.toString());
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Logs the events rejected by the endpoint. They are not sent again, as they would be rejected
+   * the same way.
+   */
+  private static void logItemErrors(String body) {
+    try {
+      JsonNode response = mapper.readTree(body);
+      if (!response.path("errors").asBoolean()) {
+        return;
+      }
+      int rejected = 0;
+      String firstError = null;
+      for (JsonNode item : response.path("items")) {
+        JsonNode error = item.path("index").path("error");
+        if (!error.isMissingNode()) {
+          rejected++;
+          firstError = firstError != null ? firstError : error.toString();
+        }
+      }
+      logger.warn("{} events were rejected by the endpoint, the first one with {}", rejected, firstError);
+    } catch (IOException e) {
+      logger.warn("Unable to read the bulk response", e);
+    }
+  }
+
+  private static byte[] toBulk(byte[] events, int end) {
+    ByteArrayOutputStream bulk = new ByteArrayOutputStream(end + end / 4);
+    int lineStart = 0;
+    for (int i = 0; i < end; i++) {
+      if (events[i] == '\n') {
+        if (i > lineStart) {
+          bulk.write(INDEX_ACTION, 0, INDEX_ACTION.length);
+          bulk.write(events, lineStart, i + 1 - lineStart);
+        }
+        lineStart = i + 1;
+      }
+    }
+    return bulk.toByteArray();
+  }
+
+  /**
+   * Gets the length of the complete lines at the start of the events, -1 when there are none.
+   */
+  private static int lastLineEnd(byte[] events) {
+    for (int i = events.length - 1; i >= 0; i--) {
+      if (events[i] == '\n') {
+        return i + 1;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,174 @@
+package utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+
+/**
+ * Local spool file of the test events, one JSON event per line. The events are kept in memory and
+ * written in batches by a background thread, when a batch is full or after the flush interval,
+ * so the test threads never wait for the disk or the network. After each write the new events are
+ * sent by the {@link EventShipper}, when there is one; the events of a failed request are sent
+ * again with the next batch or at the next flush interval.
+ */
+final class EventSpool {
+
+  private static final Logger logger = LogManager.getLogger(EventSpool.class);
+
+  private final File file;
+  private final int batchSize;
+  private final long flushMillis;
+  private final EventShipper shipper;
+  private final ScheduledExecutorService flusher;
+  private final Object bufferLock = new Object();
+  private List<String> buffer;
+  private Writer writer;
+
+  /**
+   * Creates an empty spool, replacing the spool of a previous run.
+   *
+   * @param file the spool file
+   * @param batchSize number of events that triggers a write
+   * @param flushMillis maximum time an event stays in memory
+   * @param shipper the shipper sending the written events, null to only write them
+   */
+  EventSpool(File file, int batchSize, long flushMillis, EventShipper shipper) {
+    this.file = file;
+    this.batchSize = batchSize;
+    this.flushMillis = flushMillis;
+    this.shipper = shipper;
+    this.buffer = new ArrayList<>(batchSize);
+    file.getAbsoluteFile().getParentFile().mkdirs();
+    try {
+      Files.deleteIfExists(file.toPath());
+    } catch (IOException e) {
+      logger.warn("Unable to delete the previous event spool {}", file, e);
+    }
+    flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(() -> {
+        // routes the logs of the flusher to its own file, check the log4j2.xml config file
+        ThreadContext.put("threadId", Thread.currentThread().getName());
+        runnable.run();
+      }, "event-spool");
+      thread.setDaemon(true);
+      return thread;
+    });
+    flusher.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Creates the spool with the settings of the system properties eventSpool, eventBatchSize and
+   * eventFlushMillis, shipping the events when the system property eventsUrl is set.
+   *
+   * @return the spool
+   */
+  static EventSpool fromSystemProperties() {
+    return new EventSpool(
+            new File(System.getProperty("eventSpool", System.getProperty("user.dir") + "/build/events/test-events.jsonl")),
+            Integer.parseInt(System.getProperty("eventBatchSize", "200")),
+            Long.parseLong(System.getProperty("eventFlushMillis", "5000")),
+            EventShipper.fromSystemProperties());
+  }
+
+  /**
+   * Adds an event, written with the next batch.
+   *
+   * @param event the event as a single line of JSON
+   */
+  void add(String event) {
+    boolean full;
+    synchronized (bufferLock) {
+      buffer.add(event);
+      full = buffer.size() == batchSize;
+    }
+    if (full) {
+      try {
+        flusher.execute(this::flush);
+      } catch (RejectedExecutionException e) {
+        // the spool is closed, the event is written by the caller
+        flush();
+      }
+    }
+  }
+
+  /**
+   * Writes the remaining events, sends them and stops the background thread. A refused request is
+   * sent again at each flush interval until the timeout.
+   *
+   * @param timeoutMillis maximum time to wait for the last batch to be sent
+   */
+  void close(long timeoutMillis) {
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    flusher.shutdown();
+    try {
+      if (!flusher.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+        logger.warn("The event spool was not flushed before the timeout");
+      }
+      while (!flush() && System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushMillis) < deadline) {
+        Thread.sleep(flushMillis);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (this) {
+      if (writer != null) {
+        try {
+          writer.close();
+        } catch (IOException e) {
+          logger.warn("Unable to close the event spool {}", file, e);
+        }
+        writer = null;
+      }
+    }
+  }
+
+  /**
+   * Writes the buffered events and sends the events not sent yet.
+   *
+   * @return false if the events could not be written or sent
+   */
+  private synchronized boolean flush() {
+    List<String> batch = null;
+    synchronized (bufferLock) {
+      if (!buffer.isEmpty()) {
+        batch = buffer;
+        buffer = new ArrayList<>(batchSize);
+      }
+    }
+    if (batch != null && !write(batch)) {
+      return false;
+    }
+    // without new events, this sends again the events of a failed request
+    return shipper == null || writer == null || shipper.ship(file);
+  }
+
+  private boolean write(List<String> batch) {
+    try {
+      if (writer == null) {
+        writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8);
+      }
+      for (String event : batch) {
+        writer.write(event);
+        writer.write('\n');
+      }
+      writer.flush();
+    } catch (IOException e) {
+      logger.error("Unable to write {} events to the event spool {}", batch.size(), file, e);
+      return false;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,108 @@
+package utils;
+
+import customexceptions.PageObjectLoadingError;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+
+/**
+ * Enum to represent the kind of a test failure, found from the exception types and messages of
+ * the failure and its causes. Only the failures of the infrastructure (session, connection to the
+ * Appium server, page objects not loading in time) are worth a retry: an assertion or any other
+ * failure of the test fails the same way again.
+ */
+public enum FailureKind {
+  SESSION("session", true),
+  CONNECTION("connection", true),
+  LOADING("loading", true),
+  ASSERTION("assertion", false),
+  OTHER("other", false);
+
+  private static final Pattern SESSION_MESSAGE = Pattern.compile("(?i)(could not start a new session"
+          + "|new session could not be created|invalid session id|session is either terminated or not started"
+          + "|instrumentation process is not running|uiautomator2 server.*(crashed|not running))");
+  private static final Pattern CONNECTION_MESSAGE = Pattern.compile("(?i)(socket|connection (refused|reset"
+          + "|closed)|connect timed out|read timed out|broken pipe|unexpected end of stream"
+          + "|could not proxy command|error communicating with the remote browser)");
+
+  private final String value;
+  private final boolean retryable;
+
+  FailureKind(String value, boolean retryable) {
+    this.value = value;
+    this.retryable = retryable;
+  }
+
+  /**
+   * Finds the kind of a test failure.
+   *
+   * @param failure the throwable of the failed test, may be null
+   * @return the kind of the failure
+   */
+  public static FailureKind classify(Throwable failure) {
+    if (failure == null) {
+      return OTHER;
+    }
+    if (failure instanceof AssertionError) {
+      return ASSERTION;
+    }
+    if (anyCause(failure, FailureKind::isSessionFailure)) {
+      return SESSION;
+    }
+    if (anyCause(failure, FailureKind::isConnectionFailure)) {
+      return CONNECTION;
+    }
+    if (anyCause(failure, cause -> cause instanceof PageObjectLoadingError || cause instanceof TimeoutException)) {
+      return LOADING;
+    }
+    return OTHER;
+  }
+
+  /**
+   * Tells if a failure of this kind is worth a retry.
+   *
+   * @return true for the infrastructure failures
+   */
+  public boolean isRetryable() {
+    return retryable;
+  }
+
+  @Override
+  public String toString() {
+    return value;
+  }
+
+  private static boolean isSessionFailure(Throwable cause) {
+    return cause instanceof SessionNotCreatedException || cause instanceof NoSuchSessionException
+            || (cause instanceof WebDriverException && matches(SESSION_MESSAGE, cause));
+  }
+
+  private static boolean isConnectionFailure(Throwable cause) {
+    return cause instanceof UnreachableBrowserException || cause instanceof SocketException
+            || cause instanceof SocketTimeoutException || cause instanceof ConnectException
+            || (cause instanceof WebDriverException && !(cause instanceof TimeoutException)
+                    && matches(CONNECTION_MESSAGE, cause));
+  }
+
+  private static boolean matches(Pattern pattern, Throwable cause) {
+    // the WebDriverException messages end with the build and system information, not worth matching
+    String message = cause.getMessage();
+    return message != null && pattern.matcher(message.split("\nBuild info", 2)[0]).find();
+  }
+
+  private static boolean anyCause(Throwable failure, Predicate<Throwable> predicate) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+      if (predicate.test(cause)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,160 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Outcome of the runs of each test, kept between runs in the file given by the system property
+ * flakinessHistory (build/flakiness.json by default). The flakiness score of a test is the share of
+ * its runs that only passed after a retry. At the end of the suite the scores are written to
+ * build/reports/flakiness.csv, and the tests whose score reaches the system property
+ * quarantineScore (0.2 by default) after enough runs are logged as candidates for quarantine.
+ */
+public final class FlakinessHistory {
+
+  private static final Logger logger = LogManager.getLogger(FlakinessHistory.class);
+
+  private static final String DEFAULT_HISTORY_PATH = "/build/flakiness.json";
+  private static final String REPORT_PATH = "/build/reports/flakiness.csv";
+
+  /**
+   * Number of runs before a test can be a candidate for quarantine.
+   */
+  private static final int MIN_RUNS = 5;
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private static final Map<String, TestRuns> history = new ConcurrentHashMap<>();
+  private static final File historyFile = new File(System.getProperty("flakinessHistory",
+          System.getProperty("user.dir") + DEFAULT_HISTORY_PATH));
+  private static final double quarantineScore = Double.parseDouble(System.getProperty("quarantineScore", "0.2"));
+
+  static {
+    load();
+  }
+
+  /**
+   * Private constructor to hide the implicit one.
+   */
+  private FlakinessHistory() {
+  }
+
+  /**
+   * Records the final outcome of a test, once it passed or ran out of retries.
+   *
+   * @param test the test, as Class.method
+   * @param passed true if the last attempt passed
+   * @param retries number of retries before the last attempt
+   * @param lastFailure the kind of the last failure of the test, or null when none of the attempts failed
+   */
+  public static void record(String test, boolean passed, int retries, FailureKind lastFailure) {
+    TestRuns runs = history.computeIfAbsent(test, k -> new TestRuns());
+    synchronized (runs) {
+      runs.runs++;
+      if (passed && retries > 0) {
+        runs.flaky++;
+      } else if (!passed) {
+        runs.failed++;
+      }
+      if (lastFailure != null) {
+        runs.lastFailure = lastFailure.toString();
+      }
+      logger.info("Flakiness score of {}: {} ({} flaky and {} failed runs out of {})", test,
+              String.format(Locale.ROOT, "%.2f", runs.getScore()), runs.flaky, runs.failed, runs.runs);
+    }
+  }
+
+  /**
+   * Saves the outcome of the runs for the next runs, writes the flakiness scores as a CSV file in the
+   * build/reports folder and logs the candidates for quarantine.
+   */
+  public static void writeReport() {
+    if (history.isEmpty()) {
+      return;
+    }
+    save();
+    String reportPath = System.getProperty("user.dir") + REPORT_PATH;
+    File reportFile = new File(reportPath);
+    reportFile.getParentFile().mkdirs();
+    try (PrintWriter writer = new PrintWriter(reportFile, StandardCharsets.UTF_8.name())) {
+      writer.println("test,runs,flaky,failed,score,last_failure");
+      for (Map.Entry<String, TestRuns> entry : new TreeMap<>(history).entrySet()) {
+        TestRuns runs = entry.getValue();
+        writer.println(entry.getKey() + "," + runs.runs + "," + runs.flaky + "," + runs.failed + ","
+                + String.format(Locale.ROOT, "%.2f", runs.getScore()) + ","
+                + (runs.lastFailure != null ? runs.lastFailure : ""));
+        if (runs.runs >= MIN_RUNS && runs.getScore() >= quarantineScore) {
+          logger.warn("{} only passed after a retry in {} of its {} runs, it is a candidate for quarantine",
+                  entry.getKey(), runs.flaky, runs.runs);
+        }
+      }
+      logger.info("Flakiness report written to {}", reportPath);
+    } catch (IOException e) {
+      logger.error("Unable to write the flakiness report", e);
+    }
+  }
+
+  private static void load() {
+    if (!historyFile.exists()) {
+      return;
+    }
+    try {
+      Iterator<Map.Entry<String, JsonNode>> fields = mapper.readTree(historyFile).fields();
+      while (fields.hasNext()) {
+        Map.Entry<String, JsonNode> field = fields.next();
+        TestRuns runs = new TestRuns();
+        runs.runs = field.getValue().path("runs").asInt();
+        runs.flaky = field.getValue().path("flaky").asInt();
+        runs.failed = field.getValue().path("failed").asInt();
+        runs.lastFailure = field.getValue().path("lastFailure").asText(null);
+        history.put(field.getKey(), runs);
+      }
+      logger.debug("Loaded the runs of {} tests from {}", history.size(), historyFile);
+    } catch (IOException e) {
+      logger.warn("Unable to read the flakiness history {}", historyFile, e);
+    }
+  }
+
+  private static void save() {
+    ObjectNode root = mapper.createObjectNode();
+    for (Map.Entry<String, TestRuns> entry : new TreeMap<>(history).entrySet()) {
+      TestRuns runs = entry.getValue();
+      ObjectNode node = root.putObject(entry.getKey());
+      node.put("runs", runs.runs);
+      node.put("flaky", runs.flaky);
+      node.put("failed", runs.failed);
+      if (runs.lastFailure != null) {
+        node.put("lastFailure", runs.lastFailure);
+      }
+    }
+    historyFile.getAbsoluteFile().getParentFile().mkdirs();
+    try {
+      mapper.writerWithDefaultPrettyPrinter().writeValue(historyFile, root);
+    } catch (IOException e) {
+      logger.warn("Unable to write the flakiness history {}", historyFile, e);
+    }
+  }
+
+  private static final class TestRuns {
+    private int runs;
+    private int flaky;
+    private int failed;
+    private String lastFailure;
+
+    private double getScore() {
+      return runs > 0 ? (double) flaky / runs : 0;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Registry of the load times of the screens and widgets, kept in one histogram per page object
+ * class. At the end of the suite the count, p50, p90 and p99 of each page object are exported as
+ * JSON and in the Prometheus text format, so the app latency can be tracked between runs.
+ */
+public final class LoadTimeMetrics {
+
+  private static final Logger logger = LogManager.getLogger(LoadTimeMetrics.class);
+
+  private static final String JSON_REPORT_PATH = "/build/reports/load-times.json";
+  private static final String PROMETHEUS_REPORT_PATH = "/build/reports/load-times.prom";
+  private static final String METRIC_NAME = "page_object_load_time_milliseconds";
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+  private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+  /**
+   * Private constructor to hide the implicit one.
+   */
+  private LoadTimeMetrics() {
+  }
+
+  /**
+   * Records the load time of a screen or widget.
+   *
+   * @param pageObject the page object class
+   * @param millis the load time in milliseconds
+   */
+  public static void record(Class<?> pageObject, long millis) {
+    histograms.computeIfAbsent(pageObject.getSimpleName(), key -> new LatencyHistogram()).record(millis);
+    TestEvents.screenLoaded(pageObject, millis);
+  }
+
+  /**
+   * Writes the JSON and Prometheus reports in the build/reports folder.
+   */
+  public static void writeReport() {
+    if (histograms.isEmpty()) {
+      return;
+    }
+    Map<String, LatencyHistogram> sorted = new TreeMap<>(histograms);
+    String projectPath = System.getProperty("user.dir");
+    writeJson(sorted, new File(projectPath + JSON_REPORT_PATH));
+    writePrometheus(sorted, new File(projectPath + PROMETHEUS_REPORT_PATH));
+  }
+
+  private static void writeJson(Map<String, LatencyHistogram> sorted, File reportFile) {
+    Map<String, Map<String, Long>> report = new LinkedHashMap<>();
+    for (Map.Entry<String, LatencyHistogram> entry : sorted.entrySet()) {
+      LatencyHistogram histogram = entry.getValue();
+      Map<String, Long> values = new LinkedHashMap<>();
+      values.put("count", histogram.getCount());
+      for (double quantile : QUANTILES) {
+        values.put("p" + Math.round(quantile * 100), histogram.getQuantile(quantile));
+      }
+      values.put("max", histogram.getMax());
+      values.put("sum", histogram.getSum());
+      report.put(entry.getKey(), values);
+    }
+    reportFile.getParentFile().mkdirs();
+    try {
+      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile, report);
+      logger.info("Load time report written to {}", reportFile);
+    } catch (IOException e) {
+      logger.error("Unable to write the load time report", e);
+    }
+  }
+
+  private static void writePrometheus(Map<String, LatencyHistogram> sorted, File reportFile) {
+    reportFile.getParentFile().mkdirs();
+    try (PrintWriter writer = new PrintWriter(reportFile, StandardCharsets.UTF_8.name())) {
+      writer.print("# HELP " + METRIC_NAME + " Load time of the screens and widgets.\n");
+      writer.print("# TYPE " + METRIC_NAME + " summary\n");
+      for (Map.Entry<String, LatencyHistogram> entry : sorted.entrySet()) {
+        LatencyHistogram histogram = entry.getValue();
+        String label = "page_object=\"" + entry.getKey() + "\"";
+        for (double quantile : QUANTILES) {
+          writer.print(METRIC_NAME + "{" + label + ",quantile=\"" + quantile + "\"} "
+                  + histogram.getQuantile(quantile) + "\n");
+        }
+        writer.print(METRIC_NAME + "_sum{" + label + "} " + histogram.getSum() + "\n");
+        writer.print(METRIC_NAME + "_count{" + label + "} " + histogram.getCount() + "\n");
+      }
+      logger.info("Load time metrics written to {}", reportFile);
+    } catch (IOException e) {
+      logger.error("Unable to write the load time metrics", e);
+    }
+  }
+}
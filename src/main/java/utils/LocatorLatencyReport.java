@@ -0,0 +1,91 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Collects the latency of the element lookups per locator and lookup strategy, so the XPath
+ * lookups can be compared with the compiled ones.
+ */
+public final class LocatorLatencyReport {
+
+  private static final Logger logger = LogManager.getLogger(LocatorLatencyReport.class);
+
+  private static final String REPORT_PATH = "/build/reports/locator-latency.csv";
+
+  private static final Map<String, LookupStats> stats = new ConcurrentHashMap<>();
+
+  /**
+   * Private constructor to hide the implicit one.
+   */
+  private LocatorLatencyReport() {
+  }
+
+  /**
+   * Records the duration of one lookup.
+   *
+   * @param locator the original locator
+   * @param strategy the strategy used to run the lookup: xpath, id, -android uiautomator...
+   * @param nanos the duration of the lookup in nanoseconds
+   */
+  public static void record(String locator, String strategy, long nanos) {
+    stats.computeIfAbsent(strategy + "\t" + locator, key -> new LookupStats()).add(nanos);
+  }
+
+  /**
+   * Writes the report as a CSV file in the build/reports folder.
+   */
+  public static void writeReport() {
+    if (stats.isEmpty()) {
+      return;
+    }
+    String reportPath = System.getProperty("user.dir") + REPORT_PATH;
+    File reportFile = new File(reportPath);
+    reportFile.getParentFile().mkdirs();
+    try (PrintWriter writer = new PrintWriter(reportFile, StandardCharsets.UTF_8.name())) {
+      writer.println("locator,strategy,lookups,avg_ms,max_ms");
+      for (Map.Entry<String, LookupStats> entry : new TreeMap<>(stats).entrySet()) {
+        String[] key = entry.getKey().split("\t", 2);
+        LookupStats lookupStats = entry.getValue();
+        writer.println("\"" + key[1].replace("\"", "\"\"") + "\"," + key[0] + ","
+                + lookupStats.count.sum() + "," + toMillis(lookupStats.averageNanos()) + ","
+                + toMillis(lookupStats.maxNanos.get()));
+      }
+      logger.info("Locator latency report written to {}", reportPath);
+    } catch (IOException e) {
+      logger.error("Unable to write the locator latency report", e);
+    }
+  }
+
+  private static String toMillis(long nanos) {
+    return String.format(Locale.ROOT, "%.1f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+  private static final class LookupStats {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+    private void add(long nanos) {
+      count.increment();
+      totalNanos.add(nanos);
+      maxNanos.accumulate(nanos);
+    }
+
+    private long averageNanos() {
+      long lookups = count.sum();
+      return lookups == 0 ? 0 : totalNanos.sum() / lookups;
+    }
+  }
+}
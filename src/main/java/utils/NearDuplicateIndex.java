@@ -0,0 +1,112 @@
+package utils;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Index of the written screenshots by perceptual hash, used to find a screenshot that looks the
+ * same as a new one even when the bytes differ (status bar clock, compression noise...).
+ *
+ * <p>The hash is a 64 bit difference hash: the image is reduced to 9x8 grey pixels and each bit
+ * tells if a pixel is brighter than its right neighbour. Two images are near duplicates when their
+ * hashes differ by at most the configured number of bits.</p>
+ */
+final class NearDuplicateIndex {
+
+  private static final int HASH_WIDTH = 9;
+  private static final int HASH_HEIGHT = 8;
+
+  private final int maxDistance;
+  private final List<Entry> entries = new ArrayList<>();
+
+  /**
+   * Creates the index.
+   *
+   * @param maxDistance maximum number of different bits between two near duplicate hashes
+   */
+  NearDuplicateIndex(int maxDistance) {
+    this.maxDistance = maxDistance;
+  }
+
+  /**
+   * Finds a written screenshot that looks like the given hash.
+   *
+   * @param hash the perceptual hash of the new screenshot
+   * @return the file of the near duplicate, or null when there is none
+   */
+  synchronized File find(long hash) {
+    for (Entry entry : entries) {
+      if (Long.bitCount(entry.hash ^ hash) <= maxDistance) {
+        return entry.file;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds a written screenshot to the index.
+   *
+   * @param hash the perceptual hash of the screenshot
+   * @param file the written file
+   */
+  synchronized void add(long hash, File file) {
+    entries.add(new Entry(hash, file));
+  }
+
+  /**
+   * Computes the difference hash of an image.
+   *
+   * @param image the image
+   * @return the 64 bit perceptual hash
+   */
+  static long hash(BufferedImage image) {
+    int[] grey = new int[HASH_WIDTH * HASH_HEIGHT];
+    int cellWidth = Math.max(1, image.getWidth() / HASH_WIDTH);
+    int cellHeight = Math.max(1, image.getHeight() / HASH_HEIGHT);
+    for (int y = 0; y < HASH_HEIGHT; y++) {
+      for (int x = 0; x < HASH_WIDTH; x++) {
+        grey[y * HASH_WIDTH + x] = averageGrey(image, x * cellWidth, y * cellHeight, cellWidth, cellHeight);
+      }
+    }
+    long hash = 0;
+    for (int y = 0; y < HASH_HEIGHT; y++) {
+      for (int x = 0; x < HASH_WIDTH - 1; x++) {
+        hash <<= 1;
+        if (grey[y * HASH_WIDTH + x] > grey[y * HASH_WIDTH + x + 1]) {
+          hash |= 1;
+        }
+      }
+    }
+    return hash;
+  }
+
+  /**
+   * Averages a sample of the pixels of a cell, one pixel out of four in each direction.
+   */
+  private static int averageGrey(BufferedImage image, int left, int top, int width, int height) {
+    long sum = 0;
+    int count = 0;
+    int right = Math.min(image.getWidth(), left + width);
+    int bottom = Math.min(image.getHeight(), top + height);
+    for (int y = top; y < bottom; y += 4) {
+      for (int x = left; x < right; x += 4) {
+        int rgb = image.getRGB(x, y);
+        sum += (((rgb >> 16) & 0xff) * 299 + ((rgb >> 8) & 0xff) * 587 + (rgb & 0xff) * 114) / 1000;
+        count++;
+      }
+    }
+    return count == 0 ? 0 : (int) (sum / count);
+  }
+
+  private static final class Entry {
+    private final long hash;
+    private final File file;
+
+    private Entry(long hash, File file) {
+      this.hash = hash;
+      this.file = file;
+    }
+  }
+}
@@ -0,0 +1,195 @@
+package utils;
+
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.MediaEntityBuilder;
+import com.aventstack.extentreports.Status;
+import com.aventstack.extentreports.model.Log;
+import com.aventstack.extentreports.model.Media;
+import com.aventstack.extentreports.reporter.ExtentSparkReporter;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Append-only log of the finished tests, one JSON line per test. The tests are written as soon as
+ * they end, so the heap only holds the tests still running and the results of a run that dies
+ * before the end of the suite stay on disk. The HTML report is built from this log when the
+ * report is flushed, or afterwards by running this class:
+ *
+ * <pre>gradle rebuildReport</pre>
+ */
+public final class ReportEventLog {
+
+  private static final Logger logger = LogManager.getLogger(ReportEventLog.class);
+
+  static final String DEFAULT_PATH = "/build/extent/report-events.jsonl";
+  static final String DEFAULT_REPORT_PATH = "/build/extent/HtmlReport/extent.html";
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+  private static final JsonFactory jsonFactory = mapper.getFactory();
+
+  private final File file;
+  private Writer writer;
+
+  /**
+   * Creates an empty event log, replacing the log of a previous run.
+   *
+   * @param file the log file
+   */
+  ReportEventLog(File file) {
+    this.file = file;
+    file.getParentFile().mkdirs();
+    try {
+      Files.deleteIfExists(file.toPath());
+    } catch (IOException e) {
+      logger.warn("Unable to delete the previous report event log {}", file, e);
+    }
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  /**
+   * Appends a finished test to the log and flushes it to the file.
+   *
+   * @param context the finished test
+   */
+  synchronized void append(TestContext context) {
+    try {
+      if (writer == null) {
+        writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8);
+      }
+      try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        writeTest(generator, context);
+      }
+      writer.write('\n');
+      writer.flush();
+    } catch (IOException e) {
+      logger.error("Unable to write the test [{}] to the report event log", context.getTestName(), e);
+    }
+  }
+
+  /**
+   * Closes the file. A later append opens it again.
+   */
+  synchronized void close() {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.close();
+    } catch (IOException e) {
+      logger.warn("Unable to close the report event log", e);
+    }
+    writer = null;
+  }
+
+  /**
+   * Adds all the tests of an event log to the ExtentReports, one test at a time. A line that can
+   * not be read, as the last one of a run killed while writing, is skipped.
+   *
+   * @param file the log file
+   * @param extentReport the report receiving the tests
+   * @return the number of tests added to the report
+   */
+  static int replay(File file, ExtentReports extentReport) {
+    if (!file.exists()) {
+      return 0;
+    }
+    int tests = 0;
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        try {
+          addTest(mapper.readTree(line), extentReport);
+          tests++;
+        } catch (IOException | RuntimeException e) {
+          logger.warn("Skipping an unreadable line of the report event log", e);
+        }
+      }
+    } catch (IOException e) {
+      logger.error("Unable to read the report event log {}", file, e);
+    }
+    return tests;
+  }
+
+  /**
+   * Builds the HTML report from the event log of a previous run.
+   *
+   * @param args optional paths of the event log and of the HTML report
+   */
+  public static void main(String[] args) {
+    String projectPath = System.getProperty("user.dir");
+    File file = new File(args.length > 0 ? args[0] : projectPath + DEFAULT_PATH);
+    String reportPath = args.length > 1 ? args[1] : projectPath + DEFAULT_REPORT_PATH;
+
+    ExtentReports extentReport = new ExtentReports();
+    ExtentSparkReporter sparkReporter = new ExtentSparkReporter(reportPath);
+    sparkReporter.config().setOfflineMode(true);
+    sparkReporter.config().setReportName("Test Report");
+    extentReport.attachReporter(sparkReporter);
+
+    int tests = replay(file, extentReport);
+    extentReport.flush();
+    logger.info("Report with {} tests written to {}", tests, reportPath);
+  }
+
+  private static void writeTest(JsonGenerator generator, TestContext context) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField("name", context.getTestName());
+    generator.writeNumberField("start", context.getStartTime().getTime());
+    generator.writeNumberField("end", context.getEndTime().getTime());
+    generator.writeArrayFieldStart("logs");
+    for (TestContext.LogEntry entry : context.getEntries()) {
+      generator.writeStartObject();
+      generator.writeStringField("status", entry.getStatus().name());
+      generator.writeStringField("details", entry.getDetails());
+      generator.writeNumberField("time", entry.getTimestamp().getTime());
+      if (entry.getMedia() != null) {
+        generator.writeStringField("media", entry.getMedia().getPath());
+        generator.writeStringField("mediaTitle", entry.getMedia().getTitle());
+      }
+      generator.writeEndObject();
+    }
+    generator.writeEndArray();
+    generator.writeEndObject();
+  }
+
+  private static void addTest(JsonNode node, ExtentReports extentReport) {
+    ExtentTest extentTest = extentReport.createTest(node.get("name").asText());
+    extentTest.getModel().setStartTime(new Date(node.get("start").asLong()));
+    List<Log> logs = extentTest.getModel().getLogs();
+    for (JsonNode log : node.get("logs")) {
+      Status status = Status.valueOf(log.get("status").asText());
+      String details = log.get("details").asText();
+      if (log.has("media")) {
+        Media media = MediaEntityBuilder.createScreenCaptureFromPath(log.get("media").asText(),
+                log.path("mediaTitle").asText(null)).build();
+        extentTest.log(status, details, media);
+      } else {
+        extentTest.log(status, details);
+      }
+      logs.get(logs.size() - 1).setTimestamp(new Date(log.get("time").asLong()));
+    }
+    extentTest.getModel().setEndTime(new Date(node.get("end").asLong()));
+  }
+}
@@ -0,0 +1,213 @@
+package utils;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+
+/**
+ * Writes the screenshots of the report in the background. The test thread only captures the raw
+ * bytes; the decoding, downscaling, encoding and disk I/O run on a small pool of worker threads.
+ *
+ * <p>The work queue is bounded: when it is full the test thread writes the screenshot itself,
+ * which slows the producers down instead of growing the memory use.</p>
+ *
+ * <p>When a {@link NearDuplicateIndex} is given, a screenshot that looks like an already written
+ * one is hard linked to that file instead of being encoded and written again.</p>
+ */
+final class ScreenshotPipeline {
+
+  private static final Logger logger = LogManager.getLogger(ScreenshotPipeline.class);
+
+  private static final String PNG = "png";
+
+  private final ThreadPoolExecutor executor;
+  private final int maxWidth;
+  private final String format;
+  private final NearDuplicateIndex nearDuplicateIndex;
+  private final AtomicInteger pending = new AtomicInteger();
+  private final AtomicInteger nearDuplicates = new AtomicInteger();
+  private final Object drainLock = new Object();
+
+  /**
+   * Creates the pipeline.
+   *
+   * @param workers number of worker threads
+   * @param queueCapacity number of screenshots that can wait for a worker
+   * @param maxWidth screenshots wider than this are downscaled, 0 to keep the original size
+   * @param format the image format of the written files: png or jpg
+   * @param nearDuplicateIndex index used to link the near duplicate screenshots, null to write them
+   */
+  ScreenshotPipeline(int workers, int queueCapacity, int maxWidth, String format,
+                     NearDuplicateIndex nearDuplicateIndex) {
+    this.maxWidth = maxWidth;
+    this.format = format;
+    this.nearDuplicateIndex = nearDuplicateIndex;
+    AtomicInteger threadNumber = new AtomicInteger(1);
+    ThreadFactory threadFactory = runnable -> {
+      Thread thread = new Thread(() -> {
+        // routes the logs of the worker to its own file, check the log4j2.xml config file
+        ThreadContext.put("threadId", Thread.currentThread().getName());
+        runnable.run();
+      }, "screenshot-writer-" + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    };
+    this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  /**
+   * Creates the pipeline with the settings of the system properties screenshotWorkers,
+   * screenshotQueue, screenshotMaxWidth and screenshotFormat.
+   *
+   * @param nearDuplicateIndex index used to link the near duplicate screenshots, null to write them
+   * @return the pipeline
+   */
+  static ScreenshotPipeline fromSystemProperties(NearDuplicateIndex nearDuplicateIndex) {
+    return new ScreenshotPipeline(
+            Integer.parseInt(System.getProperty("screenshotWorkers", "2")),
+            Integer.parseInt(System.getProperty("screenshotQueue", "16")),
+            Integer.parseInt(System.getProperty("screenshotMaxWidth", "0")),
+            System.getProperty("screenshotFormat", PNG).toLowerCase(),
+            nearDuplicateIndex);
+  }
+
+  /**
+   * Gets the extension of the written files.
+   *
+   * @return the file extension without the dot
+   */
+  String getExtension() {
+    return format;
+  }
+
+  /**
+   * Gets the number of screenshots linked to a near duplicate instead of being written.
+   *
+   * @return the number of near duplicates
+   */
+  int getNearDuplicates() {
+    return nearDuplicates.get();
+  }
+
+  /**
+   * Queues a screenshot to be written.
+   *
+   * @param screenshot the PNG bytes returned by the driver
+   * @param target the file to write
+   */
+  void submit(byte[] screenshot, File target) {
+    pending.incrementAndGet();
+    executor.execute(() -> {
+      try {
+        write(screenshot, target);
+      } catch (Exception e) {
+        logger.error("Exception writing the screenshot file {}", target, e);
+      } finally {
+        if (pending.decrementAndGet() == 0) {
+          synchronized (drainLock) {
+            drainLock.notifyAll();
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Waits until all the queued screenshots are written.
+   *
+   * @param timeoutMillis maximum time to wait
+   */
+  void drain(long timeoutMillis) {
+    final long deadline = System.currentTimeMillis() + timeoutMillis;
+    synchronized (drainLock) {
+      while (pending.get() > 0) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          logger.warn("{} screenshot(s) were not written before the timeout", pending.get());
+          return;
+        }
+        try {
+          drainLock.wait(remaining);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  private void write(byte[] screenshot, File target) throws IOException {
+    final long start = System.nanoTime();
+    target.getParentFile().mkdirs();
+    BufferedImage image = maxWidth > 0 || !PNG.equals(format) || nearDuplicateIndex != null
+            ? ImageIO.read(new ByteArrayInputStream(screenshot)) : null;
+
+    long perceptualHash = 0;
+    if (nearDuplicateIndex != null && image != null) {
+      perceptualHash = NearDuplicateIndex.hash(image);
+      File nearDuplicate = nearDuplicateIndex.find(perceptualHash);
+      if (nearDuplicate != null) {
+        link(target, nearDuplicate);
+        nearDuplicates.incrementAndGet();
+        logger.debug("Screenshot {} linked to the near duplicate {}", target.getName(), nearDuplicate.getName());
+        return;
+      }
+    }
+
+    if (image == null || ((maxWidth == 0 || image.getWidth() <= maxWidth) && PNG.equals(format))) {
+      Files.write(target.toPath(), screenshot);
+    } else {
+      if (!ImageIO.write(resize(image), format, target)) {
+        throw new IOException("No image writer for the format " + format);
+      }
+    }
+    if (nearDuplicateIndex != null && image != null) {
+      nearDuplicateIndex.add(perceptualHash, target);
+    }
+    logger.debug("Screenshot {} written in {} ms", target.getName(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  private static void link(File target, File existing) throws IOException {
+    try {
+      Files.createLink(target.toPath(), existing.toPath());
+    } catch (FileAlreadyExistsException e) {
+      logger.debug("Screenshot {} already exists", target.getName());
+    } catch (IOException | UnsupportedOperationException e) {
+      logger.debug("Hard links not supported, copying {}", existing.getName(), e);
+      Files.copy(existing.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private BufferedImage resize(BufferedImage image) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    if (maxWidth > 0 && width > maxWidth) {
+      height = (int) ((long) height * maxWidth / width);
+      width = maxWidth;
+    }
+    // RGB without alpha so the image can also be written as jpg
+    BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = resized.createGraphics();
+    graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    graphics.drawImage(image, 0, 0, width, height, null);
+    graphics.dispose();
+    return resized;
+  }
+}
@@ -0,0 +1,36 @@
+package utils;
+
+/**
+ * Enum to represent when the step screenshots are written to the report.
+ */
+public enum ScreenshotPolicy {
+  ALWAYS("always"),
+  ON_FAILURE("on_failure"),
+  SAMPLED("sampled");
+
+  private final String value;
+
+  ScreenshotPolicy(String value) {
+    this.value = value;
+  }
+
+  /**
+   * Gets the enum using the policy value.
+   *
+   * @param value value of the selected policy: always, on_failure or sampled
+   * @return the selected policy
+   */
+  public static ScreenshotPolicy getEnum(String value) {
+    for (ScreenshotPolicy policy : values()) {
+      if (policy.value.equals(value)) {
+        return policy;
+      }
+    }
+    throw new IllegalArgumentException("The screenshot policy [" + value + "] is not known.");
+  }
+
+  @Override
+  public String toString() {
+    return value;
+  }
+}
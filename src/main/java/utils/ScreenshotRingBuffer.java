@@ -0,0 +1,87 @@
+package utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the screenshots of the last steps of a test in memory. The oldest screenshots are dropped
+ * when the buffer holds more than the maximum number of screenshots or bytes, so the memory used
+ * by each thread stays bounded.
+ */
+final class ScreenshotRingBuffer {
+
+  private final int capacity;
+  private final long maxBytes;
+  private final Deque<BufferedScreenshot> screenshots = new ArrayDeque<>();
+  private long totalBytes;
+
+  /**
+   * Creates the buffer.
+   *
+   * @param capacity maximum number of screenshots
+   * @param maxBytes maximum number of bytes of all the screenshots together
+   */
+  ScreenshotRingBuffer(int capacity, long maxBytes) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("The screenshot buffer needs room for at least one screenshot");
+    }
+    this.capacity = capacity;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Adds the screenshot of a step, dropping the oldest ones when the buffer is full.
+   *
+   * @param stepEntry the report entry of the step, which gets the screenshot if it is written
+   * @param screenshot the screenshot bytes
+   */
+  void add(TestContext.LogEntry stepEntry, byte[] screenshot) {
+    screenshots.addLast(new BufferedScreenshot(stepEntry, screenshot));
+    totalBytes += screenshot.length;
+    while (screenshots.size() > capacity || (totalBytes > maxBytes && screenshots.size() > 1)) {
+      totalBytes -= screenshots.removeFirst().getScreenshot().length;
+    }
+  }
+
+  /**
+   * Removes and returns all the buffered screenshots, oldest first.
+   *
+   * @return the buffered screenshots
+   */
+  List<BufferedScreenshot> drain() {
+    List<BufferedScreenshot> drained = new ArrayList<>(screenshots);
+    clear();
+    return drained;
+  }
+
+  /**
+   * Drops all the buffered screenshots.
+   */
+  void clear() {
+    screenshots.clear();
+    totalBytes = 0;
+  }
+
+  /**
+   * A screenshot waiting in the buffer.
+   */
+  static final class BufferedScreenshot {
+    private final TestContext.LogEntry stepEntry;
+    private final byte[] screenshot;
+
+    private BufferedScreenshot(TestContext.LogEntry stepEntry, byte[] screenshot) {
+      this.stepEntry = stepEntry;
+      this.screenshot = screenshot;
+    }
+
+    TestContext.LogEntry getStepEntry() {
+      return stepEntry;
+    }
+
+    byte[] getScreenshot() {
+      return screenshot;
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package utils;
+
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Content-addressed store of the report screenshots. Each screenshot is named after the hash of
+ * its bytes, so an identical frame (the same loading screen across tests and retries) is written
+ * only once and every report entry points to the same file.
+ *
+ * <p>With -DscreenshotNearDuplicates=true the pipeline also compares the perceptual hash of the
+ * new screenshots with the written ones, and links the file of a visually identical frame instead
+ * of writing a new image.</p>
+ */
+final class ScreenshotStore {
+
+  private static final Logger logger = LogManager.getLogger(ScreenshotStore.class);
+
+  private static final int NAME_LENGTH = 32;
+
+  private final File directory;
+  private final ScreenshotPipeline pipeline;
+  private final Set<String> storedNames = ConcurrentHashMap.newKeySet();
+  private final AtomicLong duplicates = new AtomicLong();
+  private final AtomicLong duplicateBytes = new AtomicLong();
+
+  /**
+   * Creates the store.
+   *
+   * @param directory the folder of the report screenshots
+   * @param pipeline the pipeline that writes the new screenshots
+   */
+  ScreenshotStore(File directory, ScreenshotPipeline pipeline) {
+    this.directory = directory;
+    this.pipeline = pipeline;
+  }
+
+  /**
+   * Creates the store in the folder of the Extent report, with the pipeline configured by the
+   * system properties.
+   *
+   * @return the store
+   */
+  static ScreenshotStore fromSystemProperties() {
+    File directory = new File(System.getProperty("user.dir") + "/build/extent/HtmlReport/");
+    NearDuplicateIndex nearDuplicateIndex = null;
+    if (Boolean.parseBoolean(System.getProperty("screenshotNearDuplicates", "false"))) {
+      nearDuplicateIndex = new NearDuplicateIndex(
+              Integer.parseInt(System.getProperty("screenshotNearDuplicateDistance", "4")));
+    }
+    return new ScreenshotStore(directory, ScreenshotPipeline.fromSystemProperties(nearDuplicateIndex));
+  }
+
+  /**
+   * Stores a screenshot, queuing the write only when the same bytes were not stored before.
+   *
+   * @param screenshot the PNG bytes returned by the driver
+   * @return the file name of the screenshot, relative to the report folder
+   */
+  String store(byte[] screenshot) {
+    String fileName = Hashing.sha256().hashBytes(screenshot).toString().substring(0, NAME_LENGTH)
+            + "." + pipeline.getExtension();
+    File target = new File(directory, fileName);
+    if (storedNames.add(fileName) && !target.exists()) {
+      logger.debug("New screenshot {}", fileName);
+      pipeline.submit(screenshot, target);
+    } else {
+      logger.debug("Screenshot {} is already stored", fileName);
+      duplicates.incrementAndGet();
+      duplicateBytes.addAndGet(screenshot.length);
+    }
+    return fileName;
+  }
+
+  /**
+   * Waits until all the new screenshots are written and logs the deduplication figures.
+   *
+   * @param timeoutMillis maximum time to wait
+   */
+  void drain(long timeoutMillis) {
+    pipeline.drain(timeoutMillis);
+    logger.info("Screenshot store: {} unique screenshot(s), {} duplicate(s) not written ({} bytes), "
+            + "{} near duplicate(s) linked", storedNames.size(), duplicates.get(), duplicateBytes.get(),
+            pipeline.getNearDuplicates());
+  }
+}
@@ -0,0 +1,149 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+
+/**
+ * Splits the test methods across the machines running the suite and orders them longest first,
+ * using the durations of the previous runs kept by the {@link TestDurationHistory}.
+ *
+ * <p>The methods are bin-packed longest first into the number of shards given by the system
+ * property shards (1 by default), and only the shard given by shardIndex (0 to shards - 1) is run.
+ * The split only depends on the test methods and the duration history, so the machines sharing
+ * the same history file run each method exactly once. A sharded run does not change that history:
+ * each shard writes its durations to its own file, merged into the history after the run, see
+ * {@link TestDurationHistory}. In a shard the methods run longest first,
+ * so the threads of the parallel run do not end with a long method started last. A method without
+ * history counts as the average of the known ones.
+ */
+public class ShardScheduler implements IMethodInterceptor, IInvokedMethodListener, ISuiteListener {
+
+  private static final Logger logger = LogManager.getLogger(ShardScheduler.class);
+
+  private static final long DEFAULT_DURATION_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  private final int shards = Integer.parseInt(System.getProperty("shards", "1"));
+  private final int shardIndex = Integer.parseInt(System.getProperty("shardIndex", "0"));
+
+  /**
+   * Creates the scheduler, checking the shard system properties.
+   */
+  public ShardScheduler() {
+    if (shards < 1 || shardIndex < 0 || shardIndex >= shards) {
+      throw new IllegalArgumentException("The shard index [" + shardIndex + "] is not in the [0, " + shards
+              + "[ range of the shards.");
+    }
+  }
+
+  @Override
+  public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+    Map<IMethodInstance, Long> estimates = estimateDurations(methods);
+    List<IMethodInstance> longestFirst = new ArrayList<>(methods);
+    longestFirst.sort(Comparator.comparing((IMethodInstance method) -> estimates.get(method)).reversed()
+            .thenComparing(method -> getKey(method.getMethod())));
+
+    long[] shardMillis = new long[shards];
+    List<List<IMethodInstance>> split = new ArrayList<>();
+    for (int i = 0; i < shards; i++) {
+      split.add(new ArrayList<>());
+    }
+    for (IMethodInstance method : longestFirst) {
+      int shard = 0;
+      for (int i = 1; i < shards; i++) {
+        if (shardMillis[i] < shardMillis[shard]) {
+          shard = i;
+        }
+      }
+      shardMillis[shard] += estimates.get(method);
+      split.get(shard).add(method);
+    }
+    checkCoverage(methods, split);
+    List<IMethodInstance> shardMethods = split.get(shardIndex);
+
+    long minMillis = Long.MAX_VALUE;
+    long maxMillis = 0;
+    for (long millis : shardMillis) {
+      minMillis = Math.min(minMillis, millis);
+      maxMillis = Math.max(maxMillis, millis);
+    }
+    logger.info("Shard {} of {}: {} of the {} test methods, estimated {} s (shards from {} s to {} s)",
+            shardIndex + 1, shards, shardMethods.size(), methods.size(),
+            TimeUnit.MILLISECONDS.toSeconds(shardMillis[shardIndex]), TimeUnit.MILLISECONDS.toSeconds(minMillis),
+            TimeUnit.MILLISECONDS.toSeconds(maxMillis));
+    return shardMethods;
+  }
+
+  @Override
+  public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
+    if (method.isTestMethod() && testResult.getStatus() == ITestResult.SUCCESS) {
+      TestDurationHistory.record(getKey(method.getTestMethod()),
+              testResult.getEndMillis() - testResult.getStartMillis());
+    }
+  }
+
+  @Override
+  public void onFinish(ISuite suite) {
+    if (shards > 1) {
+      TestDurationHistory.saveShard(shardIndex);
+    } else {
+      TestDurationHistory.save();
+    }
+  }
+
+  /**
+   * Checks that the shards together run each test method exactly once.
+   */
+  private static void checkCoverage(List<IMethodInstance> methods, List<List<IMethodInstance>> split) {
+    Set<IMethodInstance> assigned = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (List<IMethodInstance> shardMethods : split) {
+      for (IMethodInstance method : shardMethods) {
+        if (!assigned.add(method)) {
+          throw new IllegalStateException("The test method " + getKey(method.getMethod())
+                  + " is assigned to several shards");
+        }
+      }
+    }
+    if (assigned.size() != methods.size()) {
+      throw new IllegalStateException((methods.size() - assigned.size()) + " of the " + methods.size()
+              + " test methods are not assigned to any shard");
+    }
+  }
+
+  private static Map<IMethodInstance, Long> estimateDurations(List<IMethodInstance> methods) {
+    Map<IMethodInstance, Long> estimates = new IdentityHashMap<>();
+    long knownMillis = 0;
+    int known = 0;
+    for (IMethodInstance method : methods) {
+      Long millis = TestDurationHistory.getDuration(getKey(method.getMethod()));
+      if (millis != null) {
+        knownMillis += millis;
+        known++;
+      }
+      estimates.put(method, millis);
+    }
+    long defaultMillis = known > 0 ? knownMillis / known : DEFAULT_DURATION_MILLIS;
+    estimates.replaceAll((method, millis) -> millis != null ? millis : defaultMillis);
+    return estimates;
+  }
+
+  private static String getKey(ITestNGMethod method) {
+    return method.getRealClass().getSimpleName() + "." + method.getMethodName();
+  }
+}
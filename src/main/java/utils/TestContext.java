@@ -0,0 +1,88 @@
+package utils;
+
+import com.aventstack.extentreports.Status;
+import com.aventstack.extentreports.model.Media;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Report entries of one test, written only by the thread that runs the test. The entries are
+ * kept in a plain list, without any lock, and appended to the {@link ReportEventLog} once the test
+ * ends.
+ */
+final class TestContext {
+
+  private final String testName;
+  private final Date startTime = new Date();
+  private final List<LogEntry> entries = new ArrayList<>();
+  private Date endTime;
+
+  TestContext(String testName) {
+    this.testName = testName;
+  }
+
+  LogEntry log(Status status, String details, Media media) {
+    LogEntry entry = new LogEntry(status, details, media);
+    entries.add(entry);
+    return entry;
+  }
+
+  void end() {
+    endTime = new Date();
+  }
+
+  String getTestName() {
+    return testName;
+  }
+
+  Date getStartTime() {
+    return startTime;
+  }
+
+  Date getEndTime() {
+    return endTime;
+  }
+
+  List<LogEntry> getEntries() {
+    return Collections.unmodifiableList(entries);
+  }
+
+  /**
+   * One line of the test log. A screenshot can still be attached to the line until the test ends.
+   */
+  static final class LogEntry {
+    private final Status status;
+    private String details;
+    private Media media;
+    private final Date timestamp = new Date();
+
+    private LogEntry(Status status, String details, Media media) {
+      this.status = status;
+      this.details = details;
+      this.media = media;
+    }
+
+    void attach(String details, Media media) {
+      this.details = details;
+      this.media = media;
+    }
+
+    Status getStatus() {
+      return status;
+    }
+
+    String getDetails() {
+      return details;
+    }
+
+    Media getMedia() {
+      return media;
+    }
+
+    Date getTimestamp() {
+      return timestamp;
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Durations of the test methods in the previous runs, used to balance the test methods across the
+ * shards and the threads. The duration of a method is a moving average of its passed runs, kept
+ * between runs in the file given by the system property durationHistory
+ * (build/test-durations.json by default).
+ *
+ * <p>A sharded run only reads that file, so all the shards split the suite from the same history.
+ * Each shard writes the durations of its own methods to a test-durations-shard-N.json file next to
+ * it, and the shard files are merged into the history with {@link #main(String[])} once all the
+ * shards are done.
+ */
+public final class TestDurationHistory {
+
+  private static final Logger logger = LogManager.getLogger(TestDurationHistory.class);
+
+  private static final String DEFAULT_HISTORY_PATH = "/build/test-durations.json";
+  private static final String SHARD_FILE_PREFIX = "test-durations-shard-";
+  private static final String JSON_EXTENSION = ".json";
+
+  /**
+   * Weight of the last run in the moving average.
+   */
+  private static final double LEARNING_RATE = 0.5;
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private static final Map<String, Long> durations = new ConcurrentHashMap<>();
+  private static final Set<String> recordedMethods = ConcurrentHashMap.newKeySet();
+  private static final File historyFile = new File(System.getProperty("durationHistory",
+          System.getProperty("user.dir") + DEFAULT_HISTORY_PATH));
+
+  static {
+    load();
+  }
+
+  /**
+   * Private constructor to hide the implicit one.
+   */
+  private TestDurationHistory() {
+  }
+
+  /**
+   * Gets the duration of a test method in the previous runs.
+   *
+   * @param method the test method, as Class.method
+   * @return the duration in milliseconds, or null when the method has no history
+   */
+  public static Long getDuration(String method) {
+    return durations.get(method);
+  }
+
+  /**
+   * Records the duration of a passed run of a test method.
+   *
+   * @param method the test method, as Class.method
+   * @param millis the duration in milliseconds
+   */
+  public static void record(String method, long millis) {
+    durations.merge(method, millis, (previous, last) -> Math.round(previous + LEARNING_RATE * (last - previous)));
+    recordedMethods.add(method);
+  }
+
+  /**
+   * Saves the durations for the next runs.
+   */
+  public static void save() {
+    if (durations.isEmpty()) {
+      return;
+    }
+    write(durations, historyFile);
+  }
+
+  /**
+   * Saves the durations of the methods run by a shard to its shard file, leaving the history
+   * shared by the shards unchanged.
+   *
+   * @param shardIndex the index of the shard
+   */
+  public static void saveShard(int shardIndex) {
+    Map<String, Long> shardDurations = new TreeMap<>();
+    for (String method : recordedMethods) {
+      shardDurations.put(method, durations.get(method));
+    }
+    write(shardDurations, new File(historyFile.getAbsoluteFile().getParentFile(),
+            SHARD_FILE_PREFIX + shardIndex + JSON_EXTENSION));
+  }
+
+  /**
+   * Merges the shard files written by {@link #saveShard(int)} into the history, and deletes them.
+   *
+   * @param args the folder of the shard files, the folder of the history by default
+   */
+  public static void main(String[] args) {
+    File folder = args.length > 0 ? new File(args[0]) : historyFile.getAbsoluteFile().getParentFile();
+    File[] shardFiles = folder.listFiles((dir, name) -> name.startsWith(SHARD_FILE_PREFIX)
+            && name.endsWith(JSON_EXTENSION));
+    if (shardFiles == null || shardFiles.length == 0) {
+      throw new IllegalArgumentException("There is no test duration shard file in [" + folder + "]");
+    }
+    for (File shardFile : shardFiles) {
+      read(shardFile);
+    }
+    write(durations, historyFile);
+    for (File shardFile : shardFiles) {
+      if (!shardFile.delete()) {
+        logger.warn("Unable to delete the merged shard file {}", shardFile);
+      }
+    }
+    logger.info("Merged {} shard files into {}", shardFiles.length, historyFile);
+  }
+
+  private static void write(Map<String, Long> methodDurations, File file) {
+    ObjectNode history = mapper.createObjectNode();
+    new TreeMap<>(methodDurations).forEach(history::put);
+    file.getAbsoluteFile().getParentFile().mkdirs();
+    try {
+      mapper.writerWithDefaultPrettyPrinter().writeValue(file, history);
+      logger.debug("Saved the duration of {} test methods to {}", methodDurations.size(), file);
+    } catch (IOException e) {
+      logger.warn("Unable to write the test duration history {}", file, e);
+    }
+  }
+
+  private static void load() {
+    if (historyFile.exists()) {
+      read(historyFile);
+    }
+  }
+
+  private static void read(File file) {
+    try {
+      JsonNode history = mapper.readTree(file);
+      Iterator<Map.Entry<String, JsonNode>> fields = history.fields();
+      while (fields.hasNext()) {
+        Map.Entry<String, JsonNode> field = fields.next();
+        durations.put(field.getKey(), field.getValue().asLong());
+      }
+      logger.debug("Loaded the duration of {} test methods from {}", durations.size(), file);
+    } catch (IOException e) {
+      logger.warn("Unable to read the test duration history {}", file, e);
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.time.Instant;
+import java.util.UUID;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Structured events of the test run, for the dashboards: test start and finish, steps, screen load
+ * times, retries and sessions. Each event is a single line of JSON carrying the run, the thread,
+ * the test, the device and the session id of its thread, so the events can be aggregated without
+ * parsing the per-thread log files.
+ *
+ * <p>The events are logged on the es.logger channel, and batched into the spool file given by the
+ * system property eventSpool (build/events/test-events.jsonl by default). When the system property
+ * eventsUrl is set, the spooled events are sent to that Elasticsearch compatible endpoint with the
+ * bulk API.
+ */
+public final class TestEvents {
+
+  private static final Logger logger = LogManager.getLogger(TestEvents.class);
+  private static final Logger esLogger = LogManager.getLogger("es.logger");
+
+  private static final long CLOSE_TIMEOUT_MILLIS = 30_000;
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private static final String runId = System.getProperty("runId", UUID.randomUUID().toString());
+  private static final boolean enabled = Boolean.parseBoolean(System.getProperty("testEvents", "true"));
+  private static final EventSpool spool = enabled ? EventSpool.fromSystemProperties() : null;
+
+  private static final ThreadLocal<String> threadTest = new ThreadLocal<>();
+  private static final ThreadLocal<String> threadDevice = new ThreadLocal<>();
+  private static final ThreadLocal<String> threadSession = new ThreadLocal<>();
+
+  /**
+   * Private constructor to hide the implicit one.
+   */
+  private TestEvents() {
+  }
+
+  /**
+   * Emits the start of a test, which the next events of the thread belong to.
+   *
+   * @param test the test, as Class.method
+   */
+  public static void testStarted(String test) {
+    threadTest.set(test);
+    emit(newEvent("test_start"));
+  }
+
+  /**
+   * Emits the end of the test of the thread.
+   *
+   * @param status the result of the test: passed, failed or skipped
+   * @param durationMillis the duration of the test
+   * @param retries number of retries of the test before this run
+   * @param failure the kind of the failure of the test, null when it passed
+   */
+  public static void testFinished(String status, long durationMillis, int retries, FailureKind failure) {
+    ObjectNode event = newEvent("test_finish");
+    event.put("status", status);
+    event.put("durationMillis", durationMillis);
+    event.put("retries", retries);
+    if (failure != null) {
+      event.put("failure", failure.toString());
+    }
+    emit(event);
+    threadTest.remove();
+    threadSession.remove();
+    threadDevice.remove();
+  }
+
+  /**
+   * Emits a step of the test of the thread.
+   *
+   * @param number the number of the step in the test
+   * @param message the message of the step
+   */
+  public static void step(int number, String message) {
+    ObjectNode event = newEvent("step");
+    event.put("step", number);
+    event.put("message", message);
+    emit(event);
+  }
+
+  /**
+   * Emits the load time of a screen or widget.
+   *
+   * @param pageObject the page object class
+   * @param millis the load time in milliseconds
+   */
+  public static void screenLoaded(Class<?> pageObject, long millis) {
+    ObjectNode event = newEvent("screen_load");
+    event.put("screen", pageObject.getSimpleName());
+    event.put("millis", millis);
+    emit(event);
+  }
+
+  /**
+   * Emits the retry of the test of the thread.
+   *
+   * @param failure the kind of the failure being retried
+   * @param attempt the number of the retry
+   */
+  public static void retry(FailureKind failure, int attempt) {
+    ObjectNode event = newEvent("retry");
+    event.put("failure", failure.toString());
+    event.put("attempt", attempt);
+    emit(event);
+  }
+
+  /**
+   * Emits the session given to the thread, which the next events of the thread are run on.
+   *
+   * @param sessionId the id of the Appium session
+   * @param device the name of the device
+   * @param reused true if the session was already used by a previous test
+   */
+  public static void sessionLeased(String sessionId, String device, boolean reused) {
+    threadSession.set(sessionId);
+    threadDevice.set(device);
+    ObjectNode event = newEvent("session");
+    event.put("reused", reused);
+    emit(event);
+  }
+
+  /**
+   * Writes and sends the events still in memory. Called at the end of the suite.
+   */
+  public static void close() {
+    if (spool != null) {
+      spool.close(CLOSE_TIMEOUT_MILLIS);
+    }
+  }
+
+  private static ObjectNode newEvent(String type) {
+    ObjectNode event = mapper.createObjectNode();
+    event.put("@timestamp", Instant.now().toString());
+    event.put("type", type);
+    event.put("run", runId);
+    event.put("thread", Thread.currentThread().getName());
+    event.put("test", threadTest.get());
+    event.put("device", threadDevice.get());
+    event.put("sessionId", threadSession.get());
+    return event;
+  }
+
+  private static void emit(ObjectNode event) {
+    if (!enabled) {
+      return;
+    }
+    try {
+      String json = mapper.writeValueAsString(event);
+      esLogger.info(json);
+      spool.add(json);
+    } catch (JsonProcessingException e) {
+      logger.warn("Unable to write the {} event", event.path("type").asText(), e);
+    }
+  }
+}
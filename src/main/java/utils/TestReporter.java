@@ -5,19 +5,21 @@ import com.aventstack.extentreports.MediaEntityBuilder;
 import com.aventstack.extentreports.Status;
 import com.aventstack.extentreports.reporter.ExtentSparkReporter;
 import com.aventstack.extentreports.ExtentReports;
-import com.aventstack.extentreports.ExtentTest;
-import org.apache.commons.io.FileUtils;
+import com.aventstack.extentreports.model.Media;
+import java.io.File;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
-
-import java.io.File;
-import java.io.IOException;
-import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Utility class to log info and screenshots in the test report.
+ *
+ * <p>Each thread logs into the context of its own test, without sharing any state with the other
+ * threads. The finished tests are appended to the {@link ReportEventLog} and only read back into
+ * the ExtentReports when the report is flushed, so the heap does not grow with the suite and the
+ * results of an interrupted run can still be turned into a report.</p>
  */
 public final class TestReporter {
 
@@ -26,13 +28,35 @@ public final class TestReporter {
    */
   private static final Logger logger = LogManager.getLogger(TestReporter.class);
 
-  private static final RandomStringGenerator filenameGenerator =
-          new RandomStringGenerator(15, new SecureRandom(),
-                  RandomStringGenerator.LOWERCASE);
+  private static final long SCREENSHOT_DRAIN_TIMEOUT_MILLIS = 60000;
+
+  private static final String SCREENSHOT_SUFFIX = " ------ Screenshot: ";
+
+  private static final ScreenshotStore screenshotStore = ScreenshotStore.fromSystemProperties();
+
+  private static final ScreenshotPolicy screenshotPolicy = ScreenshotPolicy.getEnum(
+          System.getProperty("screenshotPolicy", ScreenshotPolicy.ALWAYS.toString()).toLowerCase());
+  private static final int screenshotSampleRate = Integer.parseInt(
+          System.getProperty("screenshotSampleRate", "5"));
+  private static final AtomicLong screenshotCounter = new AtomicLong();
+
+  /**
+   * Screenshots of the last steps of the test running in each thread, used by the on_failure
+   * screenshot policy.
+   */
+  private static final ThreadLocal<ScreenshotRingBuffer> threadScreenshotBuffer = ThreadLocal.withInitial(
+          () -> new ScreenshotRingBuffer(
+                  Integer.parseInt(System.getProperty("screenshotBufferSize", "5")),
+                  Long.parseLong(System.getProperty("screenshotBufferMaxBytes", "8388608"))));
+
+  /**
+   * The test running in each thread.
+   */
+  private static final ThreadLocal<TestContext> threadTestContext = new ThreadLocal<>();
 
+  private static ReportEventLog eventLog;
   private static ExtentSparkReporter sparkReporter;
-  private static ExtentTest test;
-  private static ExtentReports extentReport;
+  private static volatile ExtentReports extentReport;
 
   /**
    * Keeps the number of the last message displayed on the test report log of each test. Useful
@@ -51,14 +75,15 @@ public final class TestReporter {
    *
    * @param docTitle the title of the document
    */
-  public static void initializeReporter(String docTitle) {
+  public static synchronized void initializeReporter(String docTitle) {
     if (extentReport != null) {
       return;
     }
 
     extentReport = new ExtentReports();
     String projectPath = System.getProperty("user.dir");
-    sparkReporter = new ExtentSparkReporter(projectPath + "/build/extent/HtmlReport/extent.html");
+    eventLog = new ReportEventLog(new File(projectPath + ReportEventLog.DEFAULT_PATH));
+    sparkReporter = new ExtentSparkReporter(projectPath + ReportEventLog.DEFAULT_REPORT_PATH);
 
     extentReport.attachReporter(sparkReporter);
 
@@ -68,12 +93,45 @@ public final class TestReporter {
   }
 
   /**
-   * Creates a new test in the ExtentReports.
+   * Adds a metric of the whole suite to the system information shown on the report dashboard.
+   *
+   * @param name the name of the metric
+   * @param value the value of the metric
+   */
+  public static synchronized void addSuiteMetric(String name, String value) {
+    if (extentReport == null) {
+      logger.warn("The reporter is not initialized, the metric [{}] is not reported", name);
+      return;
+    }
+    extentReport.setSystemInfo(name, value);
+  }
+
+  /**
+   * Creates a new test in the report for the current thread. A test still open in the thread is
+   * ended first.
    *
    * @param testName the name of the test
    */
   public static void createTest(String testName) {
-    test = extentReport.createTest(testName);
+    endTest();
+    threadTestContext.set(new TestContext(testName));
+  }
+
+  /**
+   * Ends the test of the current thread and appends it to the report event log.
+   */
+  public static void endTest() {
+    TestContext context = threadTestContext.get();
+    if (context == null) {
+      return;
+    }
+    threadTestContext.remove();
+    context.end();
+    if (eventLog == null) {
+      logger.warn("The reporter is not initialized, the test [{}] is not reported", context.getTestName());
+      return;
+    }
+    eventLog.append(context);
   }
 
   /**
@@ -98,43 +156,94 @@ public final class TestReporter {
    */
   public static void addInfoToReport(String message) {
     logger.debug(message);
-    int currentStep = threadStepNumber.get();
-    String messageWithStepNumber = Integer.toString(currentStep) + " - " + message;
-    currentStep++;
-    threadStepNumber.set(currentStep);
-    test.log(Status.INFO, messageWithStepNumber);
+    log(Status.INFO, nextStepMessage(message), null);
   }
 
   /**
-   * Takes a screenshot and adds it to ExtentReport.
+   * Takes a screenshot of a step and adds it to ExtentReport, following the screenshotPolicy:
+   * <ul>
+   *   <li>always: every screenshot is written to the report</li>
+   *   <li>on_failure: the screenshots of the last steps are kept in memory and only written when
+   *   the test fails or is skipped, see {@link #persistBufferedScreenshots()}</li>
+   *   <li>sampled: one screenshot out of screenshotSampleRate is written</li>
+   * </ul>
+   * The message of the step is always logged.
    *
    * @param message the message to log with the screenshot
    */
   public static void addScreenshotToReport(String message) {
     logger.debug(message);
+    String messageWithStepNumber = nextStepMessage(message);
 
-    logger.debug("Taking screenshot");
-    File scrFile = ((TakesScreenshot) AppiumDriverBase.getDriver()).getScreenshotAs(OutputType.FILE);
-    String projectPath = System.getProperty("user.dir");
-    logger.debug("Project path: {}", projectPath);
-    String extentReportPath = projectPath + "/build/extent/HtmlReport/";
-    String fileName = filenameGenerator.nextString() + ".png";
-    String fullFilenamePath = extentReportPath + fileName;
-    logger.debug("Full path screenshot file name: {}", fullFilenamePath);
-
-    try {
-      FileUtils.copyFile(scrFile, new File(fullFilenamePath));
-    } catch (IOException e) {
-      logger.error("Exception creating the screenshot file", e);
+    if (screenshotPolicy == ScreenshotPolicy.SAMPLED
+            && screenshotCounter.getAndIncrement() % screenshotSampleRate != 0) {
+      log(Status.INFO, messageWithStepNumber, null);
       return;
     }
 
+    byte[] screenshot = takeScreenshot();
+    if (screenshotPolicy == ScreenshotPolicy.ON_FAILURE) {
+      threadScreenshotBuffer.get().add(log(Status.INFO, messageWithStepNumber, null), screenshot);
+    } else {
+      writeScreenshot(messageWithStepNumber, screenshot);
+    }
+  }
+
+  /**
+   * Takes a screenshot and adds it to ExtentReport whatever the screenshot policy is. Used for the
+   * screenshots of failed tests.
+   *
+   * @param message the message to log with the screenshot
+   */
+  public static void addFailureScreenshotToReport(String message) {
+    logger.debug(message);
+    writeScreenshot(nextStepMessage(message), takeScreenshot());
+  }
+
+  /**
+   * Writes the screenshots of the last steps kept in memory by the on_failure screenshot policy and
+   * attaches each one to the report entry of its step.
+   */
+  public static void persistBufferedScreenshots() {
+    for (ScreenshotRingBuffer.BufferedScreenshot buffered : threadScreenshotBuffer.get().drain()) {
+      TestContext.LogEntry stepEntry = buffered.getStepEntry();
+      stepEntry.attach(stepEntry.getDetails() + SCREENSHOT_SUFFIX, storeScreenshot(buffered.getScreenshot()));
+    }
+  }
+
+  /**
+   * Drops the screenshots of the last steps kept in memory by the on_failure screenshot policy.
+   */
+  public static void discardBufferedScreenshots() {
+    threadScreenshotBuffer.get().clear();
+  }
+
+  private static byte[] takeScreenshot() {
+    logger.debug("Taking screenshot");
+    return ((TakesScreenshot) AppiumDriverBase.getDriver()).getScreenshotAs(OutputType.BYTES);
+  }
+
+  /**
+   * Stores the screenshot, written in the background only when it is new, and adds the entry to
+   * the report right away, so the steps keep their order.
+   */
+  private static void writeScreenshot(String messageWithStepNumber, byte[] screenshot) {
+    log(Status.INFO, messageWithStepNumber + SCREENSHOT_SUFFIX, storeScreenshot(screenshot));
+  }
+
+  private static Media storeScreenshot(byte[] screenshot) {
+    String fileName = screenshotStore.store(screenshot);
+    logger.debug("Screenshot file name: {}", fileName);
+    return MediaEntityBuilder.createScreenCaptureFromPath(fileName, fileName).build();
+  }
+
+  private static String nextStepMessage(String message) {
     int currentStep = threadStepNumber.get();
     String messageWithStepNumber = Integer.toString(currentStep) + " - " + message;
+    TestEvents.step(currentStep, message);
     currentStep++;
     threadStepNumber.set(currentStep);
-    test.log(Status.INFO, messageWithStepNumber + " ------ Screenshot: ",
-            MediaEntityBuilder.createScreenCaptureFromPath(fileName, fileName).build());
+    return messageWithStepNumber;
   }
 
   /**
@@ -165,13 +274,30 @@ public final class TestReporter {
   }
 
   private static void addMessage(Status messageType, String text) {
-    test.log(messageType, text);
+    log(messageType, text, null);
+  }
+
+  private static TestContext.LogEntry log(Status status, String details, Media media) {
+    TestContext context = threadTestContext.get();
+    if (context == null) {
+      logger.warn("No test created in thread {}, logging in a test named after the thread",
+              Thread.currentThread().getName());
+      context = new TestContext(Thread.currentThread().getName());
+      threadTestContext.set(context);
+    }
+    return context.log(status, details, media);
   }
 
   /**
-   * Flushes the ExtentReports, ensuring that all logs are written to the report.
+   * Builds the ExtentReports from the report event log, ensuring that all logs and screenshots are
+   * written to the report.
    */
-  public static void flushReport() {
+  public static synchronized void flushReport() {
+    endTest();
+    screenshotStore.drain(SCREENSHOT_DRAIN_TIMEOUT_MILLIS);
+    eventLog.close();
+    int tests = ReportEventLog.replay(eventLog.getFile(), extentReport);
+    logger.info("{} tests read from the report event log", tests);
     extentReport.flush();
   }
 }
@@ -1,5 +1,6 @@
 package android;
 
+import appiumdriver.CommandBudget;
 import base.TestBase;
 import com.neovisionaries.i18n.CountryCode;
 import org.testng.Assert;
@@ -27,6 +28,7 @@ public class DemoTests extends TestBase {
      groups = {"smoke"},
      enabled = true,
      retryAnalyzer = TestBase.RetryAnalyzer.class)
+  @CommandBudget(maxCommands = 80)
   public void successfullyLogin() {
 
     //Arrange
@@ -44,7 +46,7 @@ public class DemoTests extends TestBase {
             .clickContinueButton()
             .enterValueInEachField(SMS_CODE)
             .acceptAndGoToPermissionsRequestWidget()
-            .allowAndContinueToHomeRidesScreen();
+            .continueToHomeRidesScreen();
 
     //Assert
     TestReporter.addInfoToReport("Assert if the rides title is present in the home page");
@@ -56,7 +58,7 @@ public class DemoTests extends TestBase {
      groups = {"smoke"},
      enabled = true,
      retryAnalyzer = TestBase.RetryAnalyzer.class)
-
+  @CommandBudget(maxCommands = 130)
   public void updateProfileAccount() {
 
     //Arrange
@@ -76,7 +78,7 @@ public class DemoTests extends TestBase {
             .clickContinueButton()
             .enterValueInEachField(SMS_CODE)
             .acceptAndGoToPermissionsRequestWidget()
-            .allowAndContinueToHomeRidesScreen()
+            .continueToHomeRidesScreen()
             .openSideMenu()
             .openProfile()
             .enterFirstName(randomFirstName)
@@ -93,7 +95,7 @@ public class DemoTests extends TestBase {
      groups = {"smoke"},
      enabled = true,
      retryAnalyzer = TestBase.RetryAnalyzer.class)
-
+  @CommandBudget(maxCommands = 95)
   public void successfullyLogout() {
 
     //Arrange
@@ -113,7 +115,7 @@ public class DemoTests extends TestBase {
             .clickContinueButton()
             .enterValueInEachField(SMS_CODE)
             .acceptAndGoToPermissionsRequestWidget()
-            .allowAndContinueToHomeRidesScreen()
+            .continueToHomeRidesScreen()
             .openSideMenu()
             .logout();
 
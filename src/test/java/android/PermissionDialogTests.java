@@ -0,0 +1,52 @@
+package android;
+
+import appiumdriver.PermissionsMode;
+import base.TestBase;
+import com.neovisionaries.i18n.CountryCode;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+import pageobjects.android.screens.AndroidHomeRidesScreen;
+import pageobjects.android.screens.AndroidOnboardingScreen;
+import utils.TestReporter;
+
+/**
+ * Tests of the runtime permission dialogs. They are not part of the full-regression group, as the
+ * dialogs only show when the permissions are not granted up front:
+ * run them with -Dgroups=permission-dialogs -Dpermissions=dialog.
+ */
+@Test(groups = {"permission-dialogs"})
+public class PermissionDialogTests extends TestBase {
+
+  private static final String PHONE_NUMBER = "701111112";
+  private static final String SMS_CODE = "123456";
+
+  @Test(retryAnalyzer = TestBase.RetryAnalyzer.class)
+  public void successfullyAllowPermissionsThroughDialogs() {
+    if (getPermissionsMode() != PermissionsMode.DIALOG) {
+      throw new SkipException("The permission dialogs only show with -Dpermissions=dialog");
+    }
+
+    //Arrange
+    final String countryCode = "+93";
+
+    //Act
+    TestReporter.addInfoToReport("Launch a login allowing the permissions in the dialogs");
+
+    AndroidOnboardingScreen androidOnboardingScreen = new AndroidOnboardingScreen();
+
+    AndroidHomeRidesScreen androidSearchScreen = androidOnboardingScreen
+            .getStarted()
+            .setCountryCode(CountryCode.AF, countryCode)
+            .setPhoneNumber(PHONE_NUMBER)
+            .clickContinueButton()
+            .enterValueInEachField(SMS_CODE)
+            .acceptAndGoToPermissionsRequestWidget()
+            .allowAndContinueToHomeRidesScreen();
+
+    //Assert
+    TestReporter.addInfoToReport("Assert if the rides title is present in the home page");
+    Assert.assertTrue(androidSearchScreen.isRidesTitleDisplayed(), "The rides title is not present"
+            + " in the home page");
+  }
+}
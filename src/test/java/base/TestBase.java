@@ -1,20 +1,29 @@
 package base;
 
 import appiumdriver.AppiumDriverBase;
+import appiumdriver.CommandBudgetListener;
 import com.aventstack.extentreports.testng.listener.ExtentITestListenerAdapter;
 import java.lang.reflect.Method;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.ThreadContext;
 import org.jetbrains.annotations.NotNull;
+import org.openqa.selenium.WebDriverException;
 import org.testng.IRetryAnalyzer;
 import org.testng.ITestResult;
 import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Listeners;
+import pageobjects.base.TextInputEngine;
+import pageobjects.base.WaitEngine;
+import utils.FailureKind;
+import utils.FlakinessHistory;
+import utils.ShardScheduler;
+import utils.TestEvents;
 import utils.TestReporter;
 
-@Listeners({ExtentITestListenerAdapter.class})
+@Listeners({ExtentITestListenerAdapter.class, CommandBudgetListener.class, ShardScheduler.class})
 public class TestBase extends AppiumDriverBase {
 
 
@@ -46,8 +55,10 @@ public class TestBase extends AppiumDriverBase {
 
     // resets the test report step counter to 1
     TestReporter.resetStepCounter();
+    WaitEngine.resetThreadWaitingTime();
 
-    logger.info(SEPARATOR + "Starting test " + method.getName() + SEPARATOR);
+    TestEvents.testStarted(getClass().getSimpleName() + "." + method.getName());
+    logger.info("{}Starting test {}{}", SEPARATOR, method.getName(), SEPARATOR);
   }
 
   /**
@@ -56,24 +67,32 @@ public class TestBase extends AppiumDriverBase {
    * @param result the test result after the execution
    */
   @AfterMethod(alwaysRun = true)
-  public synchronized void finishTest(@NotNull ITestResult result) {
+  public void finishTest(@NotNull ITestResult result) {
 
     // Write a Test Report log to identify which thread the test ran on
     TestReporter.addInfoToReport("The test logs have been saved in: "
             + Thread.currentThread().getName() + ".log");
 
+    // recorded before the screenshots, which fail when the test broke its session
+    recordFlakiness(result);
+    emitTestFinished(result);
+
     // Write logs and take screenshot if failed or skipped
     if (result.getStatus() == ITestResult.FAILURE) {
-      TestReporter.addScreenshotToReport("Screenshot of failed test");
+      TestReporter.persistBufferedScreenshots();
+      addFailureScreenshot("Screenshot of failed test");
       logger.info("Test failed");
       logger.error(result.getThrowable());
     } else if (result.getStatus() == ITestResult.SKIP) {
-      TestReporter.addScreenshotToReport("Screenshot of skipped test");
+      TestReporter.persistBufferedScreenshots();
+      addFailureScreenshot("Screenshot of skipped test");
       logger.info("Test failure skipped, retry test");
       logger.debug(result.getThrowable());
     } else if (result.getStatus() == ITestResult.SUCCESS) {
+      TestReporter.discardBufferedScreenshots();
       logger.info("Test passed");
     } else {
+      TestReporter.discardBufferedScreenshots();
       logger.info("Test result: {}", result.getStatus());
     }
 
@@ -85,10 +104,76 @@ public class TestBase extends AppiumDriverBase {
             + " App Version: " + appVersion + " on " + device + SEPARATOR);
     TestReporter.addInfoToReport(SEPARATOR + "Branch name is " + branch + SEPARATOR);
 
-    logger.info(SEPARATOR + "Finished test " + result.getName() + SEPARATOR);
+    long waitingMillis = WaitEngine.getThreadWaitingMillis();
+    TestReporter.addInfoToReport("Time spent waiting: " + waitingMillis + " ms, acting: "
+            + Math.max(0, result.getEndMillis() - result.getStartMillis() - waitingMillis) + " ms");
+
+    logger.info("{}Finished test {}{}", SEPARATOR, result.getName(), SEPARATOR);
+  }
+
+  /**
+   * Adds a screenshot of the device to the report, unless the session of the test is gone.
+   */
+  private static void addFailureScreenshot(String message) {
+    try {
+      TestReporter.addFailureScreenshotToReport(message);
+    } catch (WebDriverException e) {
+      logger.warn("Unable to take the failure screenshot: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Records the outcome of the test once it passed or will not be retried anymore.
+   */
+  private static void recordFlakiness(ITestResult result) {
+    if (result.getStatus() != ITestResult.SUCCESS && result.getStatus() != ITestResult.FAILURE) {
+      return;
+    }
+    IRetryAnalyzer analyzer = result.getMethod().getRetryAnalyzer(result);
+    int retries = analyzer instanceof RetryAnalyzer ? ((RetryAnalyzer) analyzer).getRetryCount() : 0;
+    FailureKind lastFailure = result.getStatus() == ITestResult.FAILURE
+            ? FailureKind.classify(result.getThrowable())
+            : analyzer instanceof RetryAnalyzer ? ((RetryAnalyzer) analyzer).getLastFailure() : null;
+    FlakinessHistory.record(result.getTestClass().getRealClass().getSimpleName() + "." + result.getName(),
+            result.getStatus() == ITestResult.SUCCESS, retries, lastFailure);
   }
 
+  /**
+   * Emits the end of the test to the test events, with the kind of its failure.
+   */
+  private static void emitTestFinished(ITestResult result) {
+    IRetryAnalyzer analyzer = result.getMethod().getRetryAnalyzer(result);
+    int retries = analyzer instanceof RetryAnalyzer ? ((RetryAnalyzer) analyzer).getRetryCount() : 0;
+    String status = result.getStatus() == ITestResult.SUCCESS ? "passed"
+            : result.getStatus() == ITestResult.FAILURE ? "failed" : "skipped";
+    FailureKind failure = result.getStatus() != ITestResult.SUCCESS && result.getThrowable() != null
+            ? FailureKind.classify(result.getThrowable()) : null;
+    TestEvents.testFinished(status, result.getEndMillis() - result.getStartMillis(), retries, failure);
+  }
 
+  /**
+   * Writes the flakiness scores of the tests and saves the outcome of their runs.
+   */
+  @AfterSuite(alwaysRun = true)
+  public void writeFlakinessReport() {
+    FlakinessHistory.writeReport();
+  }
+
+  /**
+   * Writes the waiting time and text input reports, and saves the readiness latencies learnt by the
+   * wait engine.
+   */
+  @AfterSuite(alwaysRun = true)
+  public void writePageObjectReports() {
+    WaitEngine.writeReport();
+    TextInputEngine.writeReport();
+  }
+
+  /**
+   * Retries the tests that failed because of the infrastructure: the session, the connection to
+   * the Appium server or a page object that did not load in time. The session of the failed attempt
+   * goes back to the session pool, so the retry reuses it when it is still healthy.
+   */
   public static class RetryAnalyzer implements IRetryAnalyzer {
 
     /**
@@ -97,6 +182,7 @@ public class TestBase extends AppiumDriverBase {
     private static final Logger logger = LogManager.getLogger(TestBase.RetryAnalyzer.class);
 
     private int counter;
+    private FailureKind lastFailure;
     private static final int RETRY_LIMIT = 2;
 
     public RetryAnalyzer() {
@@ -107,16 +193,30 @@ public class TestBase extends AppiumDriverBase {
       return counter;
     }
 
+    /**
+     * Gets the kind of the last failure of the test.
+     *
+     * @return the failure kind, or null if the test did not fail
+     */
+    public FailureKind getLastFailure() {
+      return lastFailure;
+    }
+
     @Override
     public boolean retry(ITestResult result) {
+      lastFailure = FailureKind.classify(result.getThrowable());
+      if (!lastFailure.isRetryable()) {
+        logger.info("Not retrying test case: {}, {} failure", result.getMethod().getMethodName(), lastFailure);
+        return false;
+      }
       if (counter < RETRY_LIMIT) {
-        logger.info("Going to retry test case: " + result.getMethod().getMethodName()
-                + ", " + (counter + 1) + " out of " + RETRY_LIMIT);
+        logger.info("Going to retry test case: {}, {} failure, {} out of {}", result.getMethod().getMethodName(),
+                lastFailure, counter + 1, RETRY_LIMIT);
         counter++;
+        TestEvents.retry(lastFailure, counter);
         return true;
       }
       return false;
     }
   }
 }
-
@@ -0,0 +1,94 @@
+package utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the shipping of the test events against a {@link FakeBulkEndpoint}. They do not use the
+ * Appium session, so they run with the regression by default; to run them alone, use
+ * -Dgroups=event-shipping with the driver options of the suite, e.g. -DdriverMode=fake.
+ */
+@Test(groups = {"event-shipping"})
+public class EventShippingTests {
+
+  private static final int EVENTS = 1000;
+  private static final int BATCH_SIZE = 50;
+  private static final long FLUSH_MILLIS = 100;
+  private static final int BULK_BYTES = 4096;
+  private static final int REFUSED_REQUESTS = 2;
+  private static final long CLOSE_TIMEOUT_MILLIS = 10000;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private FakeBulkEndpoint endpoint;
+
+  @BeforeMethod(alwaysRun = true)
+  public void startEndpoint() throws IOException {
+    endpoint = new FakeBulkEndpoint();
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void stopEndpoint() {
+    endpoint.stop();
+  }
+
+  @Test
+  public void refusedRequestsAreSentAgain() throws IOException {
+
+    //Arrange
+    endpoint.refuseNextRequests(REFUSED_REQUESTS);
+    EventSpool spool = new EventSpool(
+            new File(System.getProperty("user.dir") + "/build/events/shipping-tests.jsonl"), BATCH_SIZE,
+            FLUSH_MILLIS, new EventShipper(endpoint.getUrl(), "e2e-test-events", null, BULK_BYTES));
+
+    //Act
+    for (int i = 0; i < EVENTS; i++) {
+      spool.add("{\"type\":\"check\",\"seq\":" + i + "}");
+    }
+    spool.close(CLOSE_TIMEOUT_MILLIS);
+
+    //Assert
+    List<String> received = endpoint.getEvents();
+    Set<Integer> sequences = new HashSet<>();
+    for (String event : received) {
+      sequences.add(mapper.readTree(event).path("seq").asInt());
+    }
+    Assert.assertEquals(endpoint.getRefusedRequests(), REFUSED_REQUESTS, "The endpoint did not refuse the"
+            + " expected number of requests");
+    Assert.assertEquals(received.size(), EVENTS, "The endpoint did not receive every event exactly once");
+    Assert.assertEquals(sequences.size(), EVENTS, "The endpoint did not receive every event");
+  }
+
+  @Test
+  public void refusedRequestIsSentAgainWithoutNewEvents() throws InterruptedException {
+
+    //Arrange
+    endpoint.refuseNextRequests(1);
+    EventSpool spool = new EventSpool(
+            new File(System.getProperty("user.dir") + "/build/events/shipping-tests.jsonl"), BATCH_SIZE,
+            FLUSH_MILLIS, new EventShipper(endpoint.getUrl(), "e2e-test-events", null, BULK_BYTES));
+
+    //Act
+    for (int i = 0; i < BATCH_SIZE / 2; i++) {
+      spool.add("{\"type\":\"check\",\"seq\":" + i + "}");
+    }
+    long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT_MILLIS;
+    while (endpoint.getEvents().size() < BATCH_SIZE / 2 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(FLUSH_MILLIS);
+    }
+    int receivedBeforeClose = endpoint.getEvents().size();
+    spool.close(CLOSE_TIMEOUT_MILLIS);
+
+    //Assert
+    Assert.assertEquals(endpoint.getRefusedRequests(), 1, "The endpoint did not refuse the first request");
+    Assert.assertEquals(receivedBeforeClose, BATCH_SIZE / 2, "The refused events were not sent again at the"
+            + " next flush interval");
+  }
+}
@@ -0,0 +1,121 @@
+package utils;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * In-process stub of the Elasticsearch bulk API, used to check the {@link EventShipper} without a
+ * cluster. It keeps the events of the accepted requests and can refuse the next requests with a
+ * 503, as a cluster that is not available.
+ */
+final class FakeBulkEndpoint {
+
+  private static final Logger logger = LogManager.getLogger(FakeBulkEndpoint.class);
+
+  private static final String BULK_PATH = "/_bulk";
+  private static final String ACTION_PREFIX = "{\"index\"";
+  private static final byte[] ACCEPTED = "{\"errors\":false,\"items\":[]}".getBytes(StandardCharsets.UTF_8);
+
+  private final HttpServer server;
+  private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+  private final AtomicInteger failuresLeft = new AtomicInteger();
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger refusedRequests = new AtomicInteger();
+
+  /**
+   * Starts the endpoint on a free port of the loopback interface.
+   *
+   * @throws IOException when the server can not be started
+   */
+  FakeBulkEndpoint() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", this::handle);
+    server.start();
+  }
+
+  /**
+   * Gets the base URL to give to the shipper.
+   *
+   * @return the URL of the endpoint
+   */
+  String getUrl() {
+    return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+  }
+
+  /**
+   * Refuses the next bulk requests.
+   *
+   * @param count the number of requests to refuse
+   */
+  void refuseNextRequests(int count) {
+    failuresLeft.set(count);
+  }
+
+  /**
+   * Gets the events of the accepted requests, in the order they were received.
+   *
+   * @return the events, one JSON document each
+   */
+  List<String> getEvents() {
+    synchronized (events) {
+      return new ArrayList<>(events);
+    }
+  }
+
+  int getRequests() {
+    return requests.get();
+  }
+
+  int getRefusedRequests() {
+    return refusedRequests.get();
+  }
+
+  /**
+   * Stops the endpoint.
+   */
+  void stop() {
+    server.stop(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (InputStream input = exchange.getRequestBody()) {
+      String body = new String(ByteStreams.toByteArray(input), StandardCharsets.UTF_8);
+      requests.incrementAndGet();
+      if (!"POST".equals(exchange.getRequestMethod()) || !exchange.getRequestURI().getPath().endsWith(BULK_PATH)) {
+        exchange.sendResponseHeaders(404, -1);
+        return;
+      }
+      if (failuresLeft.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+        refusedRequests.incrementAndGet();
+        logger.debug("Refused a bulk request of {} bytes", body.length());
+        exchange.sendResponseHeaders(503, -1);
+        return;
+      }
+      for (String line : body.split("\n")) {
+        if (!line.isEmpty() && !line.startsWith(ACTION_PREFIX)) {
+          events.add(line);
+        }
+      }
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, ACCEPTED.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(ACCEPTED);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+}